@@ -0,0 +1,250 @@
+public class Attacks {
+    static final long[] KNIGHT = new long[64];
+    static final long[] KING = new long[64];
+    // Squares attacked by a pawn standing on the square: [0] for white, [1] for black.
+    static final long[][] PAWN = new long[2][64];
+    // For two squares on a common rank, file or diagonal: the squares strictly between them, and
+    // the whole line through both. Zero when the squares are not aligned.
+    static final long[][] BETWEEN = new long[64][64];
+    static final long[][] LINE = new long[64][64];
+
+    private static final int[][] KNIGHT_OFFSETS = {
+        {-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
+        {1, -2}, {1, 2}, {2, -1}, {2, 1}
+    };
+    private static final int[][] KING_OFFSETS = {
+        {-1, -1}, {-1, 0}, {-1, 1},
+        {0, -1},          {0, 1},
+        {1, -1}, {1, 0}, {1, 1}
+    };
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    private static final long MAGIC_SEED = 0x9E3779B97F4A7C15L;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] ROOK_MASKS = new long[64];
+    // Printed by main below and kept as constants so that class initialisation only has to fill
+    // the lookup tables.
+    private static final long[] ROOK_MAGICS = {
+        0x2080002080400010L, 0x00C0002001401000L, 0x2100110008402002L, 0x0880080081041000L,
+        0x0200020020041008L, 0x2300040008010012L, 0x0C00283004008201L, 0x0180010000407A80L,
+        0x0168800080400020L, 0x0010400040201000L, 0x1001002001001048L, 0x1001002408100100L,
+        0x0801000408010012L, 0x4001000209000400L, 0x08A20004C8020001L, 0x2002801145002280L,
+        0x0080860021004200L, 0x001000C009402002L, 0x0010002008002400L, 0x100A808010020800L,
+        0x8101010008000410L, 0x0244008002000480L, 0x0000040010810208L, 0x2000020000448534L,
+        0x4104400480008033L, 0x0000810100204000L, 0x0440430900200010L, 0x0002090100100420L,
+        0x4400080100041100L, 0x0001000300080400L, 0x0004084400011002L, 0x0023040200008041L,
+        0x0580050043002080L, 0x0400804002802008L, 0x0001002001004010L, 0x1000200901001000L,
+        0x0000080080800400L, 0x5404800200800401L, 0x2000020804000150L, 0x0800008402000041L,
+        0x0180002000504000L, 0x0070002000424008L, 0x1040408012020020L, 0x8010040008004040L,
+        0x2001080100110004L, 0x0000020004008080L, 0x0021010810040002L, 0x0800008C43020024L,
+        0x0000800021005100L, 0x0080984000210100L, 0x0401220144108200L, 0x6008018210030880L,
+        0x0884000800800480L, 0x0005220080640080L, 0x0482011002080400L, 0x2000210044008200L,
+        0x8208210040120882L, 0x0040008100102049L, 0x0042102082000A42L, 0xC401210810000501L,
+        0x0241001002480005L, 0x0081000400880241L, 0x0000009008024124L, 0x0048122980410402L
+    };
+    private static final long[] BISHOP_MAGICS = {
+        0x8008029802002200L, 0x4202100102008801L, 0x0041020881024000L, 0x2418061040804001L,
+        0x0804504004140804L, 0x0200829040030010L, 0x0000809008200200L, 0x0002044208040200L,
+        0x0001911001010C01L, 0x0200200404006840L, 0x05009001284110C0L, 0x7150680A410A0004L,
+        0x0002940421001011L, 0x0002020202200002L, 0x0004008208224282L, 0x2010004208010801L,
+        0x0040004504040C00L, 0x0109002002008200L, 0x0008801004220020L, 0x844C802802024027L,
+        0xC0120024010C0200L, 0x0812080100A00401L, 0x0014241044220800L, 0x00824102020A0184L,
+        0x0004208040088100L, 0x0021042008080800L, 0x4200404104050208L, 0x0048A00804010020L,
+        0x0007840000802000L, 0xD804081001010080L, 0x10184B100A008208L, 0x0004028C00221100L,
+        0x4801049120C19000L, 0x0440900804040840L, 0x6084020A48080080L, 0x0882404800248200L,
+        0x0084210010040040L, 0x0410100282004040L, 0x8002040840040210L, 0x3001040485802220L,
+        0x0005080240007000L, 0x80010402020C2008L, 0x0140104138001000L, 0x0200404200802808L,
+        0x082102A00A006100L, 0xA0A02004014284A0L, 0x0411440080800400L, 0x2011181083060B80L,
+        0x2804010802900040L, 0x0000804442200010L, 0xC000050098440008L, 0x001B4000C2088000L,
+        0x000200B010504220L, 0x0003404801010400L, 0x1808081004084120L, 0xB020111402908050L,
+        0x4202088088180201L, 0x0500428201412030L, 0x0202000212010404L, 0x0000008400420200L,
+        0x00300C4040250110L, 0x0B20008810500080L, 0x4A08041002420410L, 0x8058200804604082L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] BISHOP_TABLE = new long[64][];
+    private static final long[][] ROOK_TABLE = new long[64][];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT[sq] = stepAttacks(sq, KNIGHT_OFFSETS);
+            KING[sq] = stepAttacks(sq, KING_OFFSETS);
+            PAWN[0][sq] = stepAttacks(sq, new int[][] {{-1, -1}, {-1, 1}});
+            PAWN[1][sq] = stepAttacks(sq, new int[][] {{1, -1}, {1, 1}});
+        }
+
+        for (int sq = 0; sq < 64; sq++) {
+            BISHOP_MASKS[sq] = relevantMask(sq, BISHOP_DIRECTIONS);
+            ROOK_MASKS[sq] = relevantMask(sq, ROOK_DIRECTIONS);
+            BISHOP_SHIFTS[sq] = 64 - Long.bitCount(BISHOP_MASKS[sq]);
+            ROOK_SHIFTS[sq] = 64 - Long.bitCount(ROOK_MASKS[sq]);
+            BISHOP_TABLE[sq] = fillTable(sq, BISHOP_MASKS[sq], BISHOP_MAGICS[sq], BISHOP_SHIFTS[sq], BISHOP_DIRECTIONS);
+            ROOK_TABLE[sq] = fillTable(sq, ROOK_MASKS[sq], ROOK_MAGICS[sq], ROOK_SHIFTS[sq], ROOK_DIRECTIONS);
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                if (a == b) continue;
+                long ends = (1L << a) | (1L << b);
+                if ((rook(a, 0) & (1L << b)) != 0) {
+                    BETWEEN[a][b] = rook(a, ends) & rook(b, ends);
+                    LINE[a][b] = (rook(a, 0) & rook(b, 0)) | ends;
+                } else if ((bishop(a, 0) & (1L << b)) != 0) {
+                    BETWEEN[a][b] = bishop(a, ends) & bishop(b, ends);
+                    LINE[a][b] = (bishop(a, 0) & bishop(b, 0)) | ends;
+                }
+            }
+        }
+    }
+
+    static long knight(int sq) {
+        return KNIGHT[sq];
+    }
+
+    static long king(int sq) {
+        return KING[sq];
+    }
+
+    static long pawn(int sq, boolean white) {
+        return PAWN[white ? 0 : 1][sq];
+    }
+
+    static long bishop(int sq, long occupied) {
+        return BISHOP_TABLE[sq][(int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+    }
+
+    static long rook(int sq, long occupied) {
+        return ROOK_TABLE[sq][(int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+    }
+
+    static long queen(int sq, long occupied) {
+        return bishop(sq, occupied) | rook(sq, occupied);
+    }
+
+    private static long stepAttacks(int sq, int[][] offsets) {
+        long attacks = 0;
+        int row = sq >> 3;
+        int col = sq & 7;
+        for (int[] offset : offsets) {
+            int r = row + offset[0];
+            int c = col + offset[1];
+            if (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                attacks |= 1L << (r * 8 + c);
+            }
+        }
+        return attacks;
+    }
+
+    private static long slidingAttacks(int sq, long occupied, int[][] directions) {
+        long attacks = 0;
+        for (int[] dir : directions) {
+            int r = (sq >> 3) + dir[0];
+            int c = (sq & 7) + dir[1];
+            while (r >= 0 && r < 8 && c >= 0 && c < 8) {
+                long bit = 1L << (r * 8 + c);
+                attacks |= bit;
+                if ((occupied & bit) != 0) break;
+                r += dir[0];
+                c += dir[1];
+            }
+        }
+        return attacks;
+    }
+
+    // Squares whose occupancy can change the attack set: the rays without their final edge square.
+    private static long relevantMask(int sq, int[][] directions) {
+        long mask = 0;
+        for (int[] dir : directions) {
+            int r = (sq >> 3) + dir[0];
+            int c = (sq & 7) + dir[1];
+            while (r + dir[0] >= 0 && r + dir[0] < 8 && c + dir[1] >= 0 && c + dir[1] < 8) {
+                mask |= 1L << (r * 8 + c);
+                r += dir[0];
+                c += dir[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] fillTable(int sq, long mask, long magic, int shift, int[][] directions) {
+        long[] table = new long[1 << (64 - shift)];
+        long subset = 0;
+        do {
+            table[(int) ((subset * magic) >>> shift)] = slidingAttacks(sq, subset, directions);
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+        return table;
+    }
+
+    // Usage: Attacks
+    // Searches the magics again and prints them as the ROOK_MAGICS and BISHOP_MAGICS
+    // initialisers; only needed if the square layout or the masks change. The xorshift seed is
+    // fixed and each square takes its bishop magic before its rook magic, so the output is the
+    // tables above.
+    public static void main(String[] args) {
+        long[] seed = {MAGIC_SEED};
+        long[] rookMagics = new long[64];
+        long[] bishopMagics = new long[64];
+        for (int sq = 0; sq < 64; sq++) {
+            bishopMagics[sq] = findMagic(sq, BISHOP_MASKS[sq], BISHOP_SHIFTS[sq], BISHOP_DIRECTIONS, seed);
+            rookMagics[sq] = findMagic(sq, ROOK_MASKS[sq], ROOK_SHIFTS[sq], ROOK_DIRECTIONS, seed);
+        }
+        printMagics("ROOK_MAGICS", rookMagics);
+        printMagics("BISHOP_MAGICS", bishopMagics);
+    }
+
+    private static void printMagics(String name, long[] magics) {
+        StringBuilder text = new StringBuilder("    private static final long[] " + name + " = {");
+        for (int sq = 0; sq < 64; sq++) {
+            text.append(sq % 4 == 0 ? "\n        " : " ")
+                .append(String.format("0x%016XL", magics[sq]))
+                .append(sq < 63 ? "," : "\n    };");
+        }
+        System.out.println(text);
+    }
+
+    private static long findMagic(int sq, long mask, int shift, int[][] directions, long[] seed) {
+        int size = 1 << Long.bitCount(mask);
+        long[] table = new long[size];
+        long[] occupancies = new long[size];
+        long[] attacks = new long[size];
+        long subset = 0;
+        for (int i = 0; i < size; i++) {
+            occupancies[i] = subset;
+            attacks[i] = slidingAttacks(sq, subset, directions);
+            subset = (subset - mask) & mask;
+        }
+
+        int[] used = new int[size];
+        for (int attempt = 1; ; attempt++) {
+            long magic = random(seed) & random(seed) & random(seed);
+            if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6) {
+                continue;
+            }
+            boolean collision = false;
+            for (int i = 0; i < size && !collision; i++) {
+                int index = (int) ((occupancies[i] * magic) >>> shift);
+                if (used[index] != attempt) {
+                    used[index] = attempt;
+                    table[index] = attacks[i];
+                } else if (table[index] != attacks[i]) {
+                    collision = true;
+                }
+            }
+            if (!collision) {
+                return magic;
+            }
+        }
+    }
+
+    private static long random(long[] seed) {
+        long x = seed[0];
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        seed[0] = x;
+        return x;
+    }
+}
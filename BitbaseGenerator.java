@@ -0,0 +1,313 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BitbaseGenerator {
+    private static final String STRENGTH_ORDER = "QRBNP";
+    private static final byte UNRESOLVED = 3;
+    // Set on a pending-move counter when some move already draws, so the position can never be lost.
+    private static final int CAN_DRAW = 0x80;
+
+    // Usage: BitbaseGenerator <directory> [table ...]
+    // Builds every 3- and 4-man table, or only the named ones (whose captures and promotions must
+    // already have tables in the directory). Tables that do not depend on each other are built in
+    // parallel, one per core.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: BitbaseGenerator <directory> [table ...]");
+            System.exit(1);
+        }
+        Path directory = Paths.get(args[0]);
+        Files.createDirectories(directory);
+        List<String> names = args.length > 1 ? Arrays.asList(Arrays.copyOfRange(args, 1, args.length)) : allTables();
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            // Each level only captures or promotes into tables from earlier levels.
+            for (int level = 0; level < 5; level++) {
+                Bitbases known = Bitbases.open(directory);
+                List<Future<?>> builds = new ArrayList<>();
+                for (String name : names) {
+                    if (level(name) != level) continue;
+                    builds.add(pool.submit(() -> {
+                        build(new Bitbases.Table(name), known, directory);
+                        return null;
+                    }));
+                }
+                for (Future<?> build : builds) {
+                    build.get();
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bitbase generation failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        System.out.printf("Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    // Named with the stronger side first, pieces strongest first: KQK, KRPK, KQKR, KPKP and so on.
+    static List<String> allTables() {
+        List<String> names = new ArrayList<>();
+        for (int a = 0; a < STRENGTH_ORDER.length(); a++) {
+            names.add("K" + STRENGTH_ORDER.charAt(a) + "K");
+        }
+        for (int a = 0; a < STRENGTH_ORDER.length(); a++) {
+            for (int b = a; b < STRENGTH_ORDER.length(); b++) {
+                names.add("K" + STRENGTH_ORDER.charAt(a) + STRENGTH_ORDER.charAt(b) + "K");
+                names.add("K" + STRENGTH_ORDER.charAt(a) + "K" + STRENGTH_ORDER.charAt(b));
+            }
+        }
+        return names;
+    }
+
+    private static int level(String name) {
+        int pawns = name.length() - name.replace("P", "").length();
+        return name.length() == 3 ? pawns : 2 + pawns;
+    }
+
+    private static void build(Bitbases.Table table, Bitbases known, Path directory) throws IOException {
+        long start = System.nanoTime();
+        TableBuilder builder = new TableBuilder(table, known);
+        builder.initialise();
+        builder.propagate();
+
+        int[] totals = new int[3];
+        byte[] values = builder.values;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == UNRESOLVED) values[i] = Bitbases.DRAW;
+            totals[values[i]]++;
+        }
+        write(directory.resolve(table.name + Bitbases.EXTENSION), values);
+        System.out.printf("%-6s %10d wins %10d losses %10d draws or invalid  %.1f s%n", table.name,
+                          totals[Bitbases.WIN], totals[Bitbases.LOSS], totals[Bitbases.DRAW], (System.nanoTime() - start) / 1e9);
+    }
+
+    // Four 2-bit results to a byte after a small header, so a 4-man table takes 4 MB.
+    private static void write(Path file, byte[] values) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(Bitbases.MAGIC);
+            data.writeInt(values.length);
+            for (int i = 0; i < values.length; i += 4) {
+                data.writeByte(values[i] | values[i + 1] << 2 | values[i + 2] << 4 | values[i + 3] << 6);
+            }
+            data.flush();
+        }
+    }
+
+    // Retrograde analysis of one table. Every position first counts its moves that stay inside the
+    // table; moves that capture or promote are looked up in the tables already built. Positions
+    // whose result is then known are pushed, and each one resolved is taken back move by move:
+    // a lost position makes every predecessor won, and a won one removes a pending move from each
+    // predecessor, which is lost once none are left.
+    private static final class TableBuilder {
+        private final Bitbases.Table table;
+        private final Bitbases known;
+        private final byte[] values;
+        private final byte[] counters;
+        private int[] queue = new int[1 << 16];
+        private int queueSize;
+
+        private final BitboardPosition position = new BitboardPosition();
+        private final BitboardPosition predecessor = new BitboardPosition();
+        private final int[] squares;
+        private final int[] moves = new int[BitboardPosition.MAX_MOVES];
+        private final int[] replies = new int[BitboardPosition.MAX_MOVES];
+        private final BitboardPosition.Undo undo = new BitboardPosition.Undo();
+        private final BitboardPosition.Undo replyUndo = new BitboardPosition.Undo();
+
+        TableBuilder(Bitbases.Table table, Bitbases known) {
+            this.table = table;
+            this.known = known;
+            this.values = new byte[table.size()];
+            this.counters = new byte[table.size()];
+            this.squares = new int[table.pieceCount()];
+        }
+
+        void initialise() {
+            for (int index = 0; index < values.length; index++) {
+                if (!setUp(index, position)) {
+                    values[index] = Bitbases.DRAW;
+                    continue;
+                }
+                values[index] = UNRESOLVED;
+
+                int count = position.generateLegalMoves(moves);
+                if (count == 0) {
+                    resolve(index, position.isInCheck(position.isWhiteToMove()) ? Bitbases.LOSS : Bitbases.DRAW);
+                    continue;
+                }
+
+                int pending = 0;
+                boolean canDraw = false;
+                boolean won = false;
+                for (int i = 0; i < count && !won; i++) {
+                    int move = moves[i];
+                    if (BitboardPosition.isTactical(move)) {
+                        position.makeMove(move, undo);
+                        int result = knownResult(position);
+                        position.unmakeMove(move, undo);
+                        won = result == Bitbases.LOSS;
+                        canDraw |= result == Bitbases.DRAW;
+                    } else if ((move & BitboardPosition.DOUBLE_PUSH_FLAG) != 0) {
+                        position.makeMove(move, undo);
+                        int enPassant = enPassantResult(position);
+                        position.unmakeMove(move, undo);
+                        // A push the opponent wins by taking en passant can never help.
+                        if (enPassant != Bitbases.WIN) pending++;
+                    } else {
+                        pending++;
+                    }
+                }
+
+                if (won) {
+                    resolve(index, Bitbases.WIN);
+                } else if (pending == 0) {
+                    resolve(index, canDraw ? Bitbases.DRAW : Bitbases.LOSS);
+                } else {
+                    counters[index] = (byte) (pending | (canDraw ? CAN_DRAW : 0));
+                }
+            }
+        }
+
+        void propagate() {
+            while (queueSize > 0) {
+                int index = queue[--queueSize];
+                int value = values[index];
+                setUp(index, position);
+                boolean moverWhite = !position.isWhiteToMove();
+
+                for (int i = 0; i < squares.length; i++) {
+                    int piece = table.order[i];
+                    if ((piece < 6) != moverWhite) continue;
+                    int to = squares[i];
+
+                    if (piece % 6 == BitboardPosition.PAWN) {
+                        int back = moverWhite ? to + 8 : to - 8;
+                        int startRow = moverWhite ? 6 : 1;
+                        if (position.squares[back] != BitboardPosition.EMPTY || (back >> 3) == (moverWhite ? 7 : 0)) continue;
+                        unmove(i, back, to, 0, value);
+                        int doubleBack = moverWhite ? to + 16 : to - 16;
+                        if ((back >> 3) == startRow - (moverWhite ? 1 : -1)
+                                && position.squares[doubleBack] == BitboardPosition.EMPTY) {
+                            unmove(i, doubleBack, to, BitboardPosition.DOUBLE_PUSH_FLAG, value);
+                        }
+                    } else {
+                        long origins = BitboardPosition.attacks(piece % 6, to, position.allPieces) & ~position.allPieces;
+                        while (origins != 0) {
+                            int from = Long.numberOfTrailingZeros(origins);
+                            origins &= origins - 1;
+                            unmove(i, from, to, 0, value);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Applies the resolved value of the current position to the predecessor where piece i
+        // stood on the given square before moving.
+        private void unmove(int piece, int from, int to, int flags, int value) {
+            boolean moverWhite = !position.isWhiteToMove();
+            predecessor.clear(moverWhite);
+            for (int i = 0; i < squares.length; i++) {
+                predecessor.place(table.order[i], i == piece ? from : squares[i]);
+            }
+            if (predecessor.isInCheck(!moverWhite)) return;
+
+            if (flags == BitboardPosition.DOUBLE_PUSH_FLAG) {
+                // The table holds the position without en passant; replay the push to see what
+                // taking en passant would have been worth to the opponent.
+                int move = BitboardPosition.encodeMove(from, to, 0, flags);
+                predecessor.makeMove(move, undo);
+                int enPassant = enPassantResult(predecessor);
+                predecessor.unmakeMove(move, undo);
+                if (enPassant == Bitbases.WIN) return;
+                if (enPassant == Bitbases.DRAW && value == Bitbases.LOSS) return;
+            }
+
+            int index = table.index(predecessor, false);
+            if (values[index] != UNRESOLVED) return;
+            if (value == Bitbases.LOSS) {
+                resolve(index, Bitbases.WIN);
+            } else {
+                int pending = (counters[index] & 0xFF) - 1;
+                counters[index] = (byte) pending;
+                if (pending == 0) resolve(index, Bitbases.LOSS);
+            }
+        }
+
+        // Best result for the side to move from capturing en passant, LOSS when it cannot.
+        private int enPassantResult(BitboardPosition child) {
+            if (child.getEnPassantSquare() == BitboardPosition.EMPTY) return Bitbases.LOSS;
+            int best = Bitbases.LOSS;
+            int count = child.generateCaptures(replies);
+            for (int i = 0; i < count; i++) {
+                if ((replies[i] & BitboardPosition.EN_PASSANT_FLAG) == 0) continue;
+                child.makeMove(replies[i], replyUndo);
+                int result = knownResult(child);
+                child.unmakeMove(replies[i], replyUndo);
+                if (result == Bitbases.LOSS) return Bitbases.WIN;
+                if (result == Bitbases.DRAW) best = Bitbases.DRAW;
+            }
+            return best;
+        }
+
+        private int knownResult(BitboardPosition child) {
+            int result = known.probe(child);
+            if (result == Bitbases.UNKNOWN) {
+                throw new IllegalStateException(table.name + " needs a table that has not been built yet");
+            }
+            return result;
+        }
+
+        private void resolve(int index, int value) {
+            values[index] = (byte) value;
+            if (value == Bitbases.DRAW) return;
+            if (queueSize == queue.length) {
+                queue = Arrays.copyOf(queue, queue.length * 2);
+            }
+            queue[queueSize++] = index;
+        }
+
+        // Places the position for an index, returning false for indices that are not a legal
+        // position or not the canonical index of one.
+        private boolean setUp(int index, BitboardPosition target) {
+            for (int i = squares.length - 1; i > 0; i--) {
+                squares[i] = index & 63;
+                index >>>= 6;
+            }
+            squares[0] = ((index & 31) >> 2) * 8 + (index & 3);
+            boolean whiteToMove = (index >>> 5) == 0;
+
+            long occupied = 0;
+            for (int i = 0; i < squares.length; i++) {
+                long bit = 1L << squares[i];
+                if ((occupied & bit) != 0) return false;
+                occupied |= bit;
+                int row = squares[i] >> 3;
+                if (table.order[i] % 6 == BitboardPosition.PAWN && (row == 0 || row == 7)) return false;
+                if (i > 0 && table.order[i] == table.order[i - 1] && squares[i] < squares[i - 1]) return false;
+            }
+
+            target.clear(whiteToMove);
+            for (int i = 0; i < squares.length; i++) {
+                target.place(table.order[i], squares[i]);
+            }
+            return !target.isInCheck(!whiteToMove);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Win/draw/loss tables for every ending with at most four men, as written by BitbaseGenerator.
+// Results are from the point of view of the side to move and ignore the fifty-move rule.
+public class Bitbases {
+    public static final int UNKNOWN = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+    public static final int LOSS = 2;
+
+    public static final int MAX_PIECES = 4;
+    static final String EXTENSION = ".bb";
+    static final int MAGIC = 0x42425731;
+    static final int HEADER_SIZE = 8;
+    // Material is identified by how many of each non-king piece there are, counted in base 3.
+    private static final int SIGNATURES = 59049;
+    private static final String PIECE_LETTERS = "PNBRQ";
+
+    private final Table[] tables = new Table[SIGNATURES];
+    // Whether the table for a signature was built with black as the stronger side.
+    private final boolean[] flipped = new boolean[SIGNATURES];
+    private int count;
+
+    public static Bitbases open(Path directory) throws IOException {
+        Bitbases bitbases = new Bitbases();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Table table = new Table(name.substring(0, name.length() - EXTENSION.length()));
+                table.data = map(file, table.size());
+                bitbases.add(table);
+            }
+        }
+        return bitbases;
+    }
+
+    // Returns null when the directory does not exist, so the engine simply searches these endings.
+    public static Bitbases openIfPresent(Path directory) {
+        if (!Files.isDirectory(directory)) return null;
+        try {
+            return open(directory);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(Path file, int entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data.order(ByteOrder.BIG_ENDIAN);
+            if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(4) != entries) {
+                throw new IOException("Not a bitbase for this version: " + file);
+            }
+            return data;
+        }
+    }
+
+    private void add(Table table) {
+        tables[table.signature(false)] = table;
+        flipped[table.signature(false)] = false;
+        if (tables[table.signature(true)] == null) {
+            tables[table.signature(true)] = table;
+            flipped[table.signature(true)] = true;
+        }
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    // Exact result for positions without castling rights or an en passant capture, UNKNOWN otherwise
+    // or when the material has no table.
+    public int probe(BitboardPosition position) {
+        if (Long.bitCount(position.allPieces) > MAX_PIECES) return UNKNOWN;
+        if (position.getCastlingRights() != 0 || position.getEnPassantSquare() != BitboardPosition.EMPTY) {
+            return UNKNOWN;
+        }
+        if (Long.bitCount(position.allPieces) == 2) return DRAW;
+
+        int signature = signature(position);
+        Table table = tables[signature];
+        if (table == null || table.data == null) return UNKNOWN;
+        return table.get(table.index(position, flipped[signature]));
+    }
+
+    static int signature(BitboardPosition position) {
+        int signature = 0;
+        for (int piece = 0; piece < 12; piece++) {
+            if (piece % 6 == BitboardPosition.KING) continue;
+            signature = signature * 3 + Math.min(2, Long.bitCount(position.pieces[piece]));
+        }
+        return signature;
+    }
+
+    // One material combination, indexed with the stronger side as white. Positions are mirrored so
+    // the stronger king stands on files a-d, which halves the table.
+    static final class Table {
+        final String name;
+        // Piece indices in index order: both kings, then the stronger and weaker sides' pieces.
+        final int[] order;
+        ByteBuffer data;
+
+        Table(String name) {
+            int weak = name.indexOf('K', 1);
+            if (!name.startsWith("K") || weak < 0) {
+                throw new IllegalArgumentException("Invalid bitbase name: " + name);
+            }
+            this.name = name;
+            order = new int[name.length()];
+            order[0] = BitboardPosition.KING;
+            order[1] = 6 + BitboardPosition.KING;
+            int next = 2;
+            for (int i = 1; i < name.length(); i++) {
+                if (i == weak) continue;
+                int type = PIECE_LETTERS.indexOf(name.charAt(i));
+                if (type < 0) throw new IllegalArgumentException("Invalid bitbase name: " + name);
+                order[next++] = (i < weak ? 0 : 6) + type;
+            }
+        }
+
+        int pieceCount() {
+            return order.length;
+        }
+
+        int size() {
+            return 2 * 32 << (6 * (order.length - 1));
+        }
+
+        int signature(boolean flip) {
+            int[] counts = new int[12];
+            for (int i = 2; i < order.length; i++) {
+                counts[flip ? (order[i] + 6) % 12 : order[i]]++;
+            }
+            int signature = 0;
+            for (int piece = 0; piece < 12; piece++) {
+                if (piece % 6 == BitboardPosition.KING) continue;
+                signature = signature * 3 + counts[piece];
+            }
+            return signature;
+        }
+
+        int index(BitboardPosition position, boolean flip) {
+            int colorSwap = flip ? 6 : 0;
+            int squareFlip = flip ? 56 : 0;
+            int strongKing = Long.numberOfTrailingZeros(position.pieces[(order[0] + colorSwap) % 12]) ^ squareFlip;
+            int transform = squareFlip ^ ((strongKing & 7) >= 4 ? 7 : 0);
+            strongKing ^= (strongKing & 7) >= 4 ? 7 : 0;
+
+            int index = position.isWhiteToMove() != flip ? 0 : 1;
+            index = index * 32 + (strongKing >> 3) * 4 + (strongKing & 7);
+            for (int i = 1; i < order.length; i++) {
+                long bits = position.pieces[(order[i] + colorSwap) % 12];
+                if (i + 1 < order.length && order[i + 1] == order[i]) {
+                    // Two identical pieces are stored with the lower square first.
+                    int a = Long.numberOfTrailingZeros(bits) ^ transform;
+                    int b = (63 - Long.numberOfLeadingZeros(bits)) ^ transform;
+                    index = (index * 64 + Math.min(a, b)) * 64 + Math.max(a, b);
+                    i++;
+                } else {
+                    index = index * 64 + (Long.numberOfTrailingZeros(bits) ^ transform);
+                }
+            }
+            return index;
+        }
+
+        int get(int index) {
+            return (data.get(HEADER_SIZE + (index >>> 2)) >>> ((index & 3) * 2)) & 3;
+        }
+    }
+}
@@ -0,0 +1,820 @@
+public class BitboardPosition {
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    public static final int MAX_MOVES = 256;
+
+    // Move layout: bits 0-5 from, 6-11 to, 12-14 promotion piece type (0 for none), then flags.
+    public static final int CAPTURE_FLAG = 1 << 15;
+    public static final int EN_PASSANT_FLAG = 1 << 16;
+    public static final int CASTLE_FLAG = 1 << 17;
+    public static final int DOUBLE_PUSH_FLAG = 1 << 18;
+    private static final int MOVE_SQUARES_MASK = 0x7FFF;
+
+    static final int EMPTY = -1;
+    static final int PAWN = 0;
+    static final int KNIGHT = 1;
+    static final int BISHOP = 2;
+    static final int ROOK = 3;
+    static final int QUEEN = 4;
+    static final int KING = 5;
+    // The first and last ranks, where no pawn can stand.
+    private static final long BACK_RANKS = 0xFF000000000000FFL;
+
+    // Squares are numbered row * 8 + col with row 0 being black's back rank, as on ChessBoard.
+    private static final int[] CASTLING_MASK = new int[64];
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            CASTLING_MASK[sq] = WHITE_KINGSIDE | WHITE_QUEENSIDE | BLACK_KINGSIDE | BLACK_QUEENSIDE;
+        }
+        CASTLING_MASK[square(7, 4)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        CASTLING_MASK[square(7, 7)] &= ~WHITE_KINGSIDE;
+        CASTLING_MASK[square(7, 0)] &= ~WHITE_QUEENSIDE;
+        CASTLING_MASK[square(0, 4)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        CASTLING_MASK[square(0, 7)] &= ~BLACK_KINGSIDE;
+        CASTLING_MASK[square(0, 0)] &= ~BLACK_QUEENSIDE;
+    }
+
+    // Indexed by pieceIndex(): white pieces 0-5, black pieces 6-11, in PieceType order.
+    final long[] pieces = new long[12];
+    final long[] occupancy = new long[2];
+    long allPieces;
+    final int[] squares = new int[64];
+    boolean whiteToMove;
+    int castlingRights;
+    int enPassantSquare;
+    // Not part of the key: they only matter for the fifty-move rule and FEN.
+    int halfmoveClock;
+    int fullmoveNumber = 1;
+    long key;
+    long pawnKey;
+    int middlegameScore;
+    int endgameScore;
+    int phase;
+
+    public BitboardPosition(ChessPiece[][] board, boolean whiteToMove, int castlingRights, int enPassantSquare) {
+        this(board, whiteToMove, castlingRights, enPassantSquare, 0, 1);
+    }
+
+    public BitboardPosition(ChessPiece[][] board, boolean whiteToMove, int castlingRights, int enPassantSquare,
+                            int halfmoveClock, int fullmoveNumber) {
+        java.util.Arrays.fill(squares, EMPTY);
+        for (int row = 0; row < 8; row++) {
+            for (int col = 0; col < 8; col++) {
+                ChessPiece piece = board[row][col];
+                if (piece != null) {
+                    addPiece(pieceIndex(piece.getType(), piece.isWhite()), square(row, col));
+                }
+            }
+        }
+        this.whiteToMove = whiteToMove;
+        this.castlingRights = castlingRights & validCastlingRights();
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        // The board keeps a target after every double push; like makeMove, only keep it when a
+        // pawn can capture so equal positions get equal keys.
+        this.enPassantSquare = enPassantSquare != EMPTY && canCaptureEnPassant(enPassantSquare) ? enPassantSquare : EMPTY;
+        if (whiteToMove) key ^= Zobrist.SIDE;
+        key ^= Zobrist.CASTLING[this.castlingRights];
+        if (this.enPassantSquare != EMPTY) key ^= Zobrist.EN_PASSANT[this.enPassantSquare & 7];
+    }
+
+    public static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    BitboardPosition() {
+        java.util.Arrays.fill(squares, EMPTY);
+    }
+
+    // Empties the board so a position can be set up piece by piece with place(), as the bitbase
+    // generator does for millions of positions without allocating.
+    void clear(boolean whiteToMove) {
+        java.util.Arrays.fill(pieces, 0);
+        java.util.Arrays.fill(occupancy, 0);
+        java.util.Arrays.fill(squares, EMPTY);
+        allPieces = 0;
+        this.whiteToMove = whiteToMove;
+        castlingRights = 0;
+        enPassantSquare = EMPTY;
+        key = (whiteToMove ? Zobrist.SIDE : 0) ^ Zobrist.CASTLING[0];
+        pawnKey = 0;
+        middlegameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+    }
+
+    void place(int piece, int sq) {
+        addPiece(piece, sq);
+    }
+
+    public static BitboardPosition fromFen(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        if (fields.length < 2) {
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+        }
+
+        BitboardPosition position = new BitboardPosition();
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("Invalid FEN board: " + fields[0]);
+        }
+        for (int row = 0; row < 8; row++) {
+            int col = 0;
+            for (char c : rows[row].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                } else {
+                    int type = "pnbrqk".indexOf(Character.toLowerCase(c));
+                    if (type < 0 || col > 7) {
+                        throw new IllegalArgumentException("Invalid FEN board: " + fields[0]);
+                    }
+                    position.addPiece((Character.isUpperCase(c) ? 0 : 6) + type, square(row, col++));
+                }
+            }
+            if (col != 8) {
+                throw new IllegalArgumentException("Invalid FEN board: " + fields[0]);
+            }
+        }
+        // Move generation assumes one king per side and no pawn on the first or last rank.
+        if (Long.bitCount(position.pieces[KING]) != 1 || Long.bitCount(position.pieces[6 + KING]) != 1) {
+            throw new IllegalArgumentException("Invalid FEN board, each side needs exactly one king: " + fields[0]);
+        }
+        if (((position.pieces[PAWN] | position.pieces[6 + PAWN]) & BACK_RANKS) != 0) {
+            throw new IllegalArgumentException("Invalid FEN board, pawn on the first or last rank: " + fields[0]);
+        }
+
+        if (!fields[1].equals("w") && !fields[1].equals("b")) {
+            throw new IllegalArgumentException("Invalid FEN side to move: " + fields[1]);
+        }
+        position.whiteToMove = fields[1].equals("w");
+        if (position.whiteToMove) position.key ^= Zobrist.SIDE;
+        if (position.isInCheck(!position.whiteToMove)) {
+            throw new IllegalArgumentException("Invalid FEN, the side not to move is in check: " + fen);
+        }
+
+        int castling = 0;
+        if (fields.length > 2) {
+            if (fields[2].indexOf('K') >= 0) castling |= WHITE_KINGSIDE;
+            if (fields[2].indexOf('Q') >= 0) castling |= WHITE_QUEENSIDE;
+            if (fields[2].indexOf('k') >= 0) castling |= BLACK_KINGSIDE;
+            if (fields[2].indexOf('q') >= 0) castling |= BLACK_QUEENSIDE;
+        }
+        position.castlingRights = castling & position.validCastlingRights();
+        position.key ^= Zobrist.CASTLING[position.castlingRights];
+
+        // Only kept when a pawn can actually capture, matching what makeMove records.
+        position.enPassantSquare = EMPTY;
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            if (fields[3].length() != 2) {
+                throw new IllegalArgumentException("Invalid FEN en passant square: " + fields[3]);
+            }
+            int col = fields[3].charAt(0) - 'a';
+            int row = '8' - fields[3].charAt(1);
+            int sq = square(row, col);
+            if (col < 0 || col > 7 || row < 0 || row > 7) {
+                throw new IllegalArgumentException("Invalid FEN en passant square: " + fields[3]);
+            }
+            if (position.canCaptureEnPassant(sq)) {
+                position.enPassantSquare = sq;
+                position.key ^= Zobrist.EN_PASSANT[col];
+            }
+        }
+
+        // EPD records stop after the en passant field, so the move counters are optional.
+        try {
+            if (fields.length > 4) position.halfmoveClock = Math.max(0, Integer.parseInt(fields[4]));
+            if (fields.length > 5) position.fullmoveNumber = Math.max(1, Integer.parseInt(fields[5]));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN move counters: " + fen);
+        }
+        return position;
+    }
+
+    public String toFen() {
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int col = 0; col < 8; col++) {
+                int piece = squares[square(row, col)];
+                if (piece == EMPTY) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) sb.append(empty);
+                empty = 0;
+                char letter = "pnbrqk".charAt(piece % 6);
+                sb.append(piece < 6 ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) sb.append(empty);
+            if (row < 7) sb.append('/');
+        }
+        sb.append(whiteToMove ? " w " : " b ");
+        if (castlingRights == 0) sb.append('-');
+        if ((castlingRights & WHITE_KINGSIDE) != 0) sb.append('K');
+        if ((castlingRights & WHITE_QUEENSIDE) != 0) sb.append('Q');
+        if ((castlingRights & BLACK_KINGSIDE) != 0) sb.append('k');
+        if ((castlingRights & BLACK_QUEENSIDE) != 0) sb.append('q');
+        sb.append(' ');
+        if (enPassantSquare == EMPTY) {
+            sb.append('-');
+        } else {
+            sb.append((char) ('a' + (enPassantSquare & 7))).append((char) ('8' - (enPassantSquare >> 3)));
+        }
+        return sb.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber).toString();
+    }
+
+    public BitboardPosition(BitboardPosition other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, 12);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, 2);
+        System.arraycopy(other.squares, 0, squares, 0, 64);
+        allPieces = other.allPieces;
+        whiteToMove = other.whiteToMove;
+        castlingRights = other.castlingRights;
+        enPassantSquare = other.enPassantSquare;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+        key = other.key;
+        pawnKey = other.pawnKey;
+        middlegameScore = other.middlegameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+    }
+
+    public ChessPiece[][] toBoardState() {
+        ChessPiece[][] board = new ChessPiece[8][8];
+        for (int sq = 0; sq < 64; sq++) {
+            int piece = squares[sq];
+            if (piece != EMPTY) {
+                board[sq >> 3][sq & 7] = Pieces.createPiece(PieceType.values()[piece % 6], piece < 6);
+            }
+        }
+        return board;
+    }
+
+    public boolean isWhiteToMove() {
+        return whiteToMove;
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    public long getPieces(PieceType type, boolean white) {
+        return pieces[pieceIndex(type, white)];
+    }
+
+    public static int square(int row, int col) {
+        return row * 8 + col;
+    }
+
+    static int pieceIndex(PieceType type, boolean white) {
+        return (white ? 0 : 6) + type.ordinal();
+    }
+
+    public static int encodeMove(int from, int to, int promotion) {
+        return from | (to << 6) | (promotion << 12);
+    }
+
+    static int encodeMove(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | (promotion << 12) | flags;
+    }
+
+    public static int moveFrom(int move) {
+        return move & 63;
+    }
+
+    public static int moveTo(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    // Promotion is stored as a PieceType ordinal; 0 (PAWN) means no promotion.
+    public static int movePromotion(int move) {
+        return (move >>> 12) & 7;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & CAPTURE_FLAG) != 0;
+    }
+
+    public static boolean isTactical(int move) {
+        return (move & (CAPTURE_FLAG | (7 << 12))) != 0;
+    }
+
+    // Finds the legal move with the given from, to and promotion, so that moves built from
+    // board coordinates pick up their capture/castle/en passant flags. Returns 0 if illegal.
+    public int findMove(int move) {
+        int[] moves = new int[MAX_MOVES];
+        int count = generateLegalMoves(moves);
+        for (int i = 0; i < count; i++) {
+            if ((moves[i] & MOVE_SQUARES_MASK) == (move & MOVE_SQUARES_MASK)) {
+                return moves[i];
+            }
+        }
+        return 0;
+    }
+
+    // Parses coordinate notation such as e2e4 or e7e8q into the matching legal move, or 0.
+    public int parseMove(String move) {
+        if (move.length() < 4 || move.length() > 5) return 0;
+        int fromCol = move.charAt(0) - 'a';
+        int fromRow = '8' - move.charAt(1);
+        int toCol = move.charAt(2) - 'a';
+        int toRow = '8' - move.charAt(3);
+        if ((fromCol | fromRow | toCol | toRow) < 0 || fromCol > 7 || fromRow > 7 || toCol > 7 || toRow > 7) return 0;
+        int promotion = move.length() == 5 ? "pnbrq".indexOf(move.charAt(4)) : 0;
+        if (promotion < 1 && move.length() == 5) return 0;
+        return findMove(encodeMove(square(fromRow, fromCol), square(toRow, toCol), promotion));
+    }
+
+    // Coordinate notation such as e2e4 or e7e8q.
+    public static String moveToString(int move) {
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        StringBuilder sb = new StringBuilder(5);
+        sb.append((char) ('a' + (from & 7))).append((char) ('8' - (from >> 3)));
+        sb.append((char) ('a' + (to & 7))).append((char) ('8' - (to >> 3)));
+        int promotion = movePromotion(move);
+        if (promotion != 0) {
+            sb.append("pnbrqk".charAt(promotion));
+        }
+        return sb.toString();
+    }
+
+    // Parses standard algebraic notation such as Nbd7, exd6, O-O or e8=Q+ into the matching legal
+    // move, or 0 when no single legal move fits.
+    public int parseSan(String san) {
+        int end = san.length();
+        while (end > 0 && "+#!?".indexOf(san.charAt(end - 1)) >= 0) end--;
+        String text = san.substring(0, end).replace('0', 'O');
+        int[] moves = new int[MAX_MOVES];
+        int count = generateLegalMoves(moves);
+
+        if (text.equals("O-O") || text.equals("O-O-O")) {
+            int toCol = text.length() == 3 ? 6 : 2;
+            for (int i = 0; i < count; i++) {
+                if ((moves[i] & CASTLE_FLAG) != 0 && (moveTo(moves[i]) & 7) == toCol) return moves[i];
+            }
+            return 0;
+        }
+
+        int promotion = 0;
+        int equals = text.indexOf('=');
+        if (equals >= 0 || (end >= 3 && "NBRQ".indexOf(text.charAt(text.length() - 1)) >= 0)) {
+            promotion = "PNBRQ".indexOf(text.charAt(text.length() - 1));
+            text = text.substring(0, equals >= 0 ? equals : text.length() - 1);
+        }
+        if (text.length() < 2) return 0;
+        int type = "NBRQK".indexOf(text.charAt(0)) + 1;
+        int toCol = text.charAt(text.length() - 2) - 'a';
+        int toRow = '8' - text.charAt(text.length() - 1);
+        if (toCol < 0 || toCol > 7 || toRow < 0 || toRow > 7) return 0;
+        int to = square(toRow, toCol);
+        int fromCol = -1;
+        int fromRow = -1;
+        for (int i = type == PAWN ? 0 : 1; i < text.length() - 2; i++) {
+            char c = text.charAt(i);
+            if (c >= 'a' && c <= 'h') fromCol = c - 'a';
+            else if (c >= '1' && c <= '8') fromRow = '8' - c;
+            else if (c != 'x') return 0;
+        }
+
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = moveFrom(move);
+            if (moveTo(move) != to || squares[from] % 6 != type || movePromotion(move) != promotion) continue;
+            if ((fromCol >= 0 && (from & 7) != fromCol) || (fromRow >= 0 && (from >> 3) != fromRow)) continue;
+            if (found != 0) return 0;
+            found = move;
+        }
+        return found;
+    }
+
+    // Standard algebraic notation for a legal move in this position, with check and mate marks.
+    public String toSan(int move) {
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        int type = squares[from] % 6;
+        StringBuilder sb = new StringBuilder(8);
+        if ((move & CASTLE_FLAG) != 0) {
+            sb.append((to & 7) == 6 ? "O-O" : "O-O-O");
+        } else {
+            if (type == PAWN) {
+                if (isCapture(move)) sb.append((char) ('a' + (from & 7)));
+            } else {
+                sb.append("NBRQK".charAt(type - 1));
+                int[] moves = new int[MAX_MOVES];
+                int count = generateLegalMoves(moves);
+                boolean ambiguous = false;
+                boolean sameCol = false;
+                boolean sameRow = false;
+                for (int i = 0; i < count; i++) {
+                    int other = moveFrom(moves[i]);
+                    if (other == from || moveTo(moves[i]) != to || squares[other] != squares[from]) continue;
+                    ambiguous = true;
+                    sameCol |= (other & 7) == (from & 7);
+                    sameRow |= (other >> 3) == (from >> 3);
+                }
+                if (ambiguous && (!sameCol || sameRow)) sb.append((char) ('a' + (from & 7)));
+                if (sameCol) sb.append((char) ('8' - (from >> 3)));
+            }
+            if (isCapture(move)) sb.append('x');
+            sb.append((char) ('a' + (to & 7))).append((char) ('8' - (to >> 3)));
+            if (movePromotion(move) != 0) sb.append('=').append("PNBRQ".charAt(movePromotion(move)));
+        }
+
+        Undo undo = new Undo();
+        makeMove(move, undo);
+        if (isInCheck(whiteToMove)) {
+            sb.append(generateLegalMoves(new int[MAX_MOVES]) == 0 ? '#' : '+');
+        }
+        unmakeMove(move, undo);
+        return sb.toString();
+    }
+
+    private boolean canCaptureEnPassant(int sq) {
+        return (Attacks.pawn(sq, !whiteToMove) & pieces[(whiteToMove ? 0 : 6) + PAWN]) != 0;
+    }
+
+    private int validCastlingRights() {
+        int valid = 0;
+        if (squares[square(7, 4)] == KING) {
+            if (squares[square(7, 7)] == ROOK) valid |= WHITE_KINGSIDE;
+            if (squares[square(7, 0)] == ROOK) valid |= WHITE_QUEENSIDE;
+        }
+        if (squares[square(0, 4)] == 6 + KING) {
+            if (squares[square(0, 7)] == 6 + ROOK) valid |= BLACK_KINGSIDE;
+            if (squares[square(0, 0)] == 6 + ROOK) valid |= BLACK_QUEENSIDE;
+        }
+        return valid;
+    }
+
+    private void addPiece(int piece, int sq) {
+        long bit = 1L << sq;
+        pieces[piece] |= bit;
+        occupancy[piece < 6 ? 0 : 1] |= bit;
+        allPieces |= bit;
+        squares[sq] = piece;
+        key ^= Zobrist.PIECES[piece][sq];
+        if (piece % 6 == PAWN) pawnKey ^= Zobrist.PIECES[piece][sq];
+        middlegameScore += Evaluation.MIDDLEGAME[piece][sq];
+        endgameScore += Evaluation.ENDGAME[piece][sq];
+        phase += Evaluation.PHASE_WEIGHT[piece % 6];
+    }
+
+    private void removePiece(int piece, int sq) {
+        long bit = ~(1L << sq);
+        pieces[piece] &= bit;
+        occupancy[piece < 6 ? 0 : 1] &= bit;
+        allPieces &= bit;
+        squares[sq] = EMPTY;
+        key ^= Zobrist.PIECES[piece][sq];
+        if (piece % 6 == PAWN) pawnKey ^= Zobrist.PIECES[piece][sq];
+        middlegameScore -= Evaluation.MIDDLEGAME[piece][sq];
+        endgameScore -= Evaluation.ENDGAME[piece][sq];
+        phase -= Evaluation.PHASE_WEIGHT[piece % 6];
+    }
+
+    public boolean isSquareAttacked(int sq, boolean byWhite) {
+        int side = byWhite ? 0 : 6;
+        if ((Attacks.pawn(sq, !byWhite) & pieces[side + PAWN]) != 0) return true;
+        if ((Attacks.knight(sq) & pieces[side + KNIGHT]) != 0) return true;
+        if ((Attacks.king(sq) & pieces[side + KING]) != 0) return true;
+        long diagonal = pieces[side + BISHOP] | pieces[side + QUEEN];
+        if ((Attacks.bishop(sq, allPieces) & diagonal) != 0) return true;
+        long straight = pieces[side + ROOK] | pieces[side + QUEEN];
+        return (Attacks.rook(sq, allPieces) & straight) != 0;
+    }
+
+    public boolean isInCheck(boolean white) {
+        long king = pieces[(white ? 0 : 6) + KING];
+        if (king == 0) return false;
+        return isSquareAttacked(Long.numberOfTrailingZeros(king), !white);
+    }
+
+    // Emits only legal moves. Checkers and pinned pieces are worked out once per position, so no
+    // move has to be made and taken back to test it.
+    public int generateLegalMoves(int[] moves) {
+        return generate(moves, false);
+    }
+
+    // Legal captures and promotions only, for the quiescence search.
+    public int generateCaptures(int[] moves) {
+        return generate(moves, true);
+    }
+
+    private int generate(int[] moves, boolean tacticalOnly) {
+        int count = 0;
+        int us = whiteToMove ? 0 : 6;
+        long own = occupancy[whiteToMove ? 0 : 1];
+        long enemy = occupancy[whiteToMove ? 1 : 0];
+        long targetMask = tacticalOnly ? enemy : ~own;
+        long king = pieces[us + KING];
+        int kingSquare = Long.numberOfTrailingZeros(king);
+
+        long checkMask = ~0L;
+        long pinned = 0;
+        if (king != 0) {
+            // The king is lifted off the board so that it cannot step back along a checking line.
+            long withoutKing = allPieces & ~king;
+            long targets = Attacks.king(kingSquare) & targetMask;
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                if (attackersTo(to, !whiteToMove, withoutKing) == 0) {
+                    moves[count++] = encodeMove(kingSquare, to, 0, (enemy & (1L << to)) != 0 ? CAPTURE_FLAG : 0);
+                }
+            }
+
+            long checkers = attackersTo(kingSquare, !whiteToMove, allPieces);
+            if (Long.bitCount(checkers) > 1) return count;
+            if (checkers != 0) {
+                // Any other move has to capture the checker or block its line.
+                checkMask = checkers | Attacks.BETWEEN[kingSquare][Long.numberOfTrailingZeros(checkers)];
+            } else if (!tacticalOnly) {
+                count = addCastlingMoves(moves, count);
+            }
+            pinned = pinnedPieces(kingSquare);
+        }
+
+        long pawns = pieces[us + PAWN];
+        int forward = whiteToMove ? -8 : 8;
+        int startRow = whiteToMove ? 6 : 1;
+        int promotionRow = whiteToMove ? 0 : 7;
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            long allowed = checkMask;
+            if ((pinned & (1L << from)) != 0) allowed &= Attacks.LINE[kingSquare][from];
+
+            int to = from + forward;
+            if (squares[to] == EMPTY) {
+                if ((!tacticalOnly || (to >> 3) == promotionRow) && (allowed & (1L << to)) != 0) {
+                    count = addPawnMove(moves, count, from, to, promotionRow, 0);
+                }
+                if (!tacticalOnly && (from >> 3) == startRow && squares[to + forward] == EMPTY
+                        && (allowed & (1L << (to + forward))) != 0) {
+                    moves[count++] = encodeMove(from, to + forward, 0, DOUBLE_PUSH_FLAG);
+                }
+            }
+            long targets = Attacks.pawn(from, whiteToMove);
+            long captures = targets & enemy & allowed;
+            while (captures != 0) {
+                int target = Long.numberOfTrailingZeros(captures);
+                captures &= captures - 1;
+                count = addPawnMove(moves, count, from, target, promotionRow, CAPTURE_FLAG);
+            }
+            if (enPassantSquare != EMPTY && (targets & (1L << enPassantSquare)) != 0
+                    && isLegalEnPassant(from, king, checkMask)) {
+                moves[count++] = encodeMove(from, enPassantSquare, 0, CAPTURE_FLAG | EN_PASSANT_FLAG);
+            }
+        }
+
+        for (int type = KNIGHT; type <= QUEEN; type++) {
+            long bits = pieces[us + type];
+            while (bits != 0) {
+                int from = Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                long targets = attacks(type, from, allPieces) & targetMask & checkMask;
+                if ((pinned & (1L << from)) != 0) targets &= Attacks.LINE[kingSquare][from];
+                while (targets != 0) {
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    moves[count++] = encodeMove(from, to, 0, (enemy & (1L << to)) != 0 ? CAPTURE_FLAG : 0);
+                }
+            }
+        }
+        return count;
+    }
+
+    private long attackersTo(int sq, boolean byWhite, long occupied) {
+        int side = byWhite ? 0 : 6;
+        return (Attacks.pawn(sq, !byWhite) & pieces[side + PAWN])
+                | (Attacks.knight(sq) & pieces[side + KNIGHT])
+                | (Attacks.king(sq) & pieces[side + KING])
+                | (Attacks.bishop(sq, occupied) & (pieces[side + BISHOP] | pieces[side + QUEEN]))
+                | (Attacks.rook(sq, occupied) & (pieces[side + ROOK] | pieces[side + QUEEN]));
+    }
+
+    // Own pieces standing alone between the king and an enemy slider; they may only move along that line.
+    private long pinnedPieces(int kingSquare) {
+        int them = whiteToMove ? 6 : 0;
+        long theirs = occupancy[whiteToMove ? 1 : 0];
+        long own = occupancy[whiteToMove ? 0 : 1];
+        long snipers = (Attacks.rook(kingSquare, theirs) & (pieces[them + ROOK] | pieces[them + QUEEN]))
+                | (Attacks.bishop(kingSquare, theirs) & (pieces[them + BISHOP] | pieces[them + QUEEN]));
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.BETWEEN[kingSquare][sniper] & allPieces;
+            if (Long.bitCount(blockers) == 1) {
+                pinned |= blockers & own;
+            }
+        }
+        return pinned;
+    }
+
+    // En passant removes a pawn from a square the pin and check masks know nothing about, which
+    // can expose the king along the rank, so the capture is replayed on the occupancy instead.
+    private boolean isLegalEnPassant(int from, long king, long checkMask) {
+        int captured = enPassantSquare + (whiteToMove ? 8 : -8);
+        if ((checkMask & ((1L << captured) | (1L << enPassantSquare))) == 0) return false;
+        if (king == 0) return true;
+
+        int kingSquare = Long.numberOfTrailingZeros(king);
+        int them = whiteToMove ? 6 : 0;
+        long occupied = (allPieces & ~(1L << from) & ~(1L << captured)) | (1L << enPassantSquare);
+        return (Attacks.bishop(kingSquare, occupied) & (pieces[them + BISHOP] | pieces[them + QUEEN])) == 0
+                && (Attacks.rook(kingSquare, occupied) & (pieces[them + ROOK] | pieces[them + QUEEN])) == 0;
+    }
+
+    private int addPawnMove(int[] moves, int count, int from, int to, int promotionRow, int flags) {
+        if ((to >> 3) == promotionRow) {
+            moves[count++] = encodeMove(from, to, QUEEN, flags);
+            moves[count++] = encodeMove(from, to, ROOK, flags);
+            moves[count++] = encodeMove(from, to, BISHOP, flags);
+            moves[count++] = encodeMove(from, to, KNIGHT, flags);
+        } else {
+            moves[count++] = encodeMove(from, to, 0, flags);
+        }
+        return count;
+    }
+
+    // Only called when the king is not in check.
+    private int addCastlingMoves(int[] moves, int count) {
+        int row = whiteToMove ? 7 : 0;
+        int kingSide = whiteToMove ? WHITE_KINGSIDE : BLACK_KINGSIDE;
+        int queenSide = whiteToMove ? WHITE_QUEENSIDE : BLACK_QUEENSIDE;
+        if ((castlingRights & (kingSide | queenSide)) == 0) return count;
+
+        int king = square(row, 4);
+        if ((castlingRights & kingSide) != 0
+                && squares[king + 1] == EMPTY && squares[king + 2] == EMPTY
+                && !isSquareAttacked(king + 1, !whiteToMove) && !isSquareAttacked(king + 2, !whiteToMove)) {
+            moves[count++] = encodeMove(king, king + 2, 0, CASTLE_FLAG);
+        }
+        if ((castlingRights & queenSide) != 0
+                && squares[king - 1] == EMPTY && squares[king - 2] == EMPTY && squares[king - 3] == EMPTY
+                && !isSquareAttacked(king - 1, !whiteToMove) && !isSquareAttacked(king - 2, !whiteToMove)) {
+            moves[count++] = encodeMove(king, king - 2, 0, CASTLE_FLAG);
+        }
+        return count;
+    }
+
+    static long attacks(int type, int sq, long occupied) {
+        switch (type) {
+            case KNIGHT: return Attacks.knight(sq);
+            case BISHOP: return Attacks.bishop(sq, occupied);
+            case ROOK: return Attacks.rook(sq, occupied);
+            case QUEEN: return Attacks.queen(sq, occupied);
+            case KING: return Attacks.king(sq);
+            default: return 0;
+        }
+    }
+
+    public void makeMove(int move) {
+        makeMove(move, new Undo());
+    }
+
+    public void makeMove(int move, Undo undo) {
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        int promotion = movePromotion(move);
+        int piece = squares[from];
+        int us = whiteToMove ? 0 : 6;
+        int them = whiteToMove ? 6 : 0;
+
+        undo.captured = EMPTY;
+        undo.castlingRights = castlingRights;
+        undo.enPassantSquare = enPassantSquare;
+        undo.halfmoveClock = halfmoveClock;
+        undo.key = key;
+
+        halfmoveClock = piece % 6 == PAWN || (move & CAPTURE_FLAG) != 0 ? 0 : halfmoveClock + 1;
+        if (!whiteToMove) fullmoveNumber++;
+
+        if ((move & EN_PASSANT_FLAG) != 0) {
+            undo.captured = them + PAWN;
+            removePiece(them + PAWN, to + (whiteToMove ? 8 : -8));
+        } else if ((move & CAPTURE_FLAG) != 0) {
+            undo.captured = squares[to];
+            removePiece(undo.captured, to);
+        }
+        removePiece(piece, from);
+        addPiece(promotion != 0 ? us + promotion : piece, to);
+
+        if ((move & CASTLE_FLAG) != 0) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            removePiece(us + ROOK, rookFrom);
+            addPiece(us + ROOK, rookTo);
+        }
+
+        key ^= Zobrist.CASTLING[castlingRights];
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+        key ^= Zobrist.CASTLING[castlingRights];
+
+        if (enPassantSquare != EMPTY) key ^= Zobrist.EN_PASSANT[enPassantSquare & 7];
+        enPassantSquare = EMPTY;
+        if ((move & DOUBLE_PUSH_FLAG) != 0) {
+            long adjacent = 0;
+            int col = to & 7;
+            if (col > 0) adjacent |= 1L << (to - 1);
+            if (col < 7) adjacent |= 1L << (to + 1);
+            if ((adjacent & pieces[them + PAWN]) != 0) {
+                enPassantSquare = (from + to) / 2;
+                key ^= Zobrist.EN_PASSANT[enPassantSquare & 7];
+            }
+        }
+
+        whiteToMove = !whiteToMove;
+        key ^= Zobrist.SIDE;
+    }
+
+    public void unmakeMove(int move, Undo undo) {
+        whiteToMove = !whiteToMove;
+        castlingRights = undo.castlingRights;
+        enPassantSquare = undo.enPassantSquare;
+        halfmoveClock = undo.halfmoveClock;
+        if (!whiteToMove) fullmoveNumber--;
+
+        int from = moveFrom(move);
+        int to = moveTo(move);
+        int us = whiteToMove ? 0 : 6;
+        int moved = squares[to];
+
+        removePiece(moved, to);
+        addPiece(movePromotion(move) != 0 ? us + PAWN : moved, from);
+
+        if ((move & EN_PASSANT_FLAG) != 0) {
+            addPiece(undo.captured, to + (whiteToMove ? 8 : -8));
+        } else if ((move & CAPTURE_FLAG) != 0) {
+            addPiece(undo.captured, to);
+        }
+
+        if ((move & CASTLE_FLAG) != 0) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            removePiece(us + ROOK, rookTo);
+            addPiece(us + ROOK, rookFrom);
+        }
+        key = undo.key;
+    }
+
+    // Passes the turn, for null-move pruning. Never called when the side to move is in check.
+    public void makeNullMove(Undo undo) {
+        undo.enPassantSquare = enPassantSquare;
+        undo.halfmoveClock = halfmoveClock;
+        undo.key = key;
+        if (enPassantSquare != EMPTY) key ^= Zobrist.EN_PASSANT[enPassantSquare & 7];
+        enPassantSquare = EMPTY;
+        halfmoveClock++;
+        whiteToMove = !whiteToMove;
+        key ^= Zobrist.SIDE;
+    }
+
+    public void unmakeNullMove(Undo undo) {
+        whiteToMove = !whiteToMove;
+        enPassantSquare = undo.enPassantSquare;
+        halfmoveClock = undo.halfmoveClock;
+        key = undo.key;
+    }
+
+    // Neither side can mate: bare kings, or a lone knight or bishop against a bare king.
+    public boolean isInsufficientMaterial() {
+        int count = Long.bitCount(allPieces);
+        return count == 2 || (count == 3 && (pieces[KNIGHT] | pieces[BISHOP] | pieces[6 + KNIGHT] | pieces[6 + BISHOP]) != 0);
+    }
+
+    // Whether the side has anything besides pawns and its king; without it zugzwang is common.
+    public boolean hasNonPawnMaterial(boolean white) {
+        int side = white ? 0 : 6;
+        return (occupancy[white ? 0 : 1] & ~(pieces[side + PAWN] | pieces[side + KING])) != 0;
+    }
+
+    public static final class Undo {
+        int captured;
+        int castlingRights;
+        int enPassantSquare;
+        int halfmoveClock;
+        long key;
+    }
+}
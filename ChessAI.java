@@ -1,319 +1,377 @@
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ChessAI {
-    private boolean isWhite;
+    static final int MAX_PLY = 64;
+    private static final int DEFAULT_HASH_SIZE_MB = 16;
+    private static final long DEFAULT_MOVE_TIME_MS = 1000;
+    private static final int MAX_SEARCH_DEPTH = 32;
+    
     private int maxDepth;
+    private final TranspositionTable transpositionTable;
+    private OpeningBook openingBook;
+    private Bitbases bitbases;
+    private long nodeLimit = Long.MAX_VALUE;
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private final AtomicLong deadline = new AtomicLong();
+    private volatile long ponderStart;
+    private SearchWorker[] workers;
+    private SearchStatistics lastStatistics;
+    // Root of the last search, so its principal variation can be matched to a later position.
+    private BitboardPosition lastRoot;
+    private long[] gameHistory = new long[0];
+    private ExecutorService helperPool;
     
-    private static final int PAWN_VALUE = 100;
-    private static final int KNIGHT_VALUE = 320;
-    private static final int BISHOP_VALUE = 330;
-    private static final int ROOK_VALUE = 500;
-    private static final int QUEEN_VALUE = 900;
-    private static final int KING_VALUE = 20000;
-    
-    private static final int[][] PAWN_POSITION = {
-        {0, 0, 0, 0, 0, 0, 0, 0},
-        {50, 50, 50, 50, 50, 50, 50, 50},
-        {10, 10, 20, 30, 30, 20, 10, 10},
-        {5, 5, 10, 25, 25, 10, 5, 5},
-        {0, 0, 0, 20, 20, 0, 0, 0},
-        {5, -5, -10, 0, 0, -10, -5, 5},
-        {5, 10, 10, -20, -20, 10, 10, 5},
-        {0, 0, 0, 0, 0, 0, 0, 0}
-    };
-    
-    private static final int[][] KNIGHT_POSITION = {
-        {-50, -40, -30, -30, -30, -30, -40, -50},
-        {-40, -20, 0, 0, 0, 0, -20, -40},
-        {-30, 0, 10, 15, 15, 10, 0, -30},
-        {-30, 5, 15, 20, 20, 15, 5, -30},
-        {-30, 0, 15, 20, 20, 15, 0, -30},
-        {-30, 5, 10, 15, 15, 10, 5, -30},
-        {-40, -20, 0, 5, 5, 0, -20, -40},
-        {-50, -40, -30, -30, -30, -30, -40, -50}
-    };
-    
-    private static final int[][] BISHOP_POSITION = {
-        {-20, -10, -10, -10, -10, -10, -10, -20},
-        {-10, 0, 0, 0, 0, 0, 0, -10},
-        {-10, 0, 5, 10, 10, 5, 0, -10},
-        {-10, 5, 5, 10, 10, 5, 5, -10},
-        {-10, 0, 10, 10, 10, 10, 0, -10},
-        {-10, 10, 10, 10, 10, 10, 10, -10},
-        {-10, 5, 0, 0, 0, 0, 5, -10},
-        {-20, -10, -10, -10, -10, -10, -10, -20}
-    };
-    
-    private static final int[][] ROOK_POSITION = {
-        {0, 0, 0, 0, 0, 0, 0, 0},
-        {5, 10, 10, 10, 10, 10, 10, 5},
-        {-5, 0, 0, 0, 0, 0, 0, -5},
-        {-5, 0, 0, 0, 0, 0, 0, -5},
-        {-5, 0, 0, 0, 0, 0, 0, -5},
-        {-5, 0, 0, 0, 0, 0, 0, -5},
-        {-5, 0, 0, 0, 0, 0, 0, -5},
-        {0, 0, 0, 5, 5, 0, 0, 0}
-    };
-    
-    private static final int[][] QUEEN_POSITION = {
-        {-20, -10, -10, -5, -5, -10, -10, -20},
-        {-10, 0, 0, 0, 0, 0, 0, -10},
-        {-10, 0, 5, 5, 5, 5, 0, -10},
-        {-5, 0, 5, 5, 5, 5, 0, -5},
-        {0, 0, 5, 5, 5, 5, 0, -5},
-        {-10, 5, 5, 5, 5, 5, 0, -10},
-        {-10, 0, 5, 0, 0, 0, 0, -10},
-        {-20, -10, -10, -5, -5, -10, -10, -20}
-    };
-    
-    private static final int[][] KING_MIDDLEGAME_POSITION = {
-        {-30, -40, -40, -50, -50, -40, -40, -30},
-        {-30, -40, -40, -50, -50, -40, -40, -30},
-        {-30, -40, -40, -50, -50, -40, -40, -30},
-        {-30, -40, -40, -50, -50, -40, -40, -30},
-        {-20, -30, -30, -40, -40, -30, -30, -20},
-        {-10, -20, -20, -20, -20, -20, -20, -10},
-        {20, 20, 0, 0, 0, 0, 20, 20},
-        {20, 30, 10, 0, 0, 10, 30, 20}
-    };
-    
-    private static final int[][] KING_ENDGAME_POSITION = {
-        {-50, -40, -30, -20, -20, -30, -40, -50},
-        {-30, -20, -10, 0, 0, -10, -20, -30},
-        {-30, -10, 20, 30, 30, 20, -10, -30},
-        {-30, -10, 30, 40, 40, 30, -10, -30},
-        {-30, -10, 30, 40, 40, 30, -10, -30},
-        {-30, -10, 20, 30, 30, 20, -10, -30},
-        {-30, -30, 0, 0, 0, 0, -30, -30},
-        {-50, -30, -30, -30, -30, -30, -30, -50}
-    };
-    
-    public ChessAI(boolean isWhite) {
-        this.isWhite = isWhite;
-        this.maxDepth = 3;
-    }
-    
-    public Move getBestMove(ChessBoard board) {
-        return alphaBetaRoot(board, maxDepth);
-    }
-    
-    private Move alphaBetaRoot(ChessBoard board, int depth) {
-        List<Move> allMoves = getAllPossibleMoves(board, isWhite);
-        
-        if (allMoves.isEmpty()) return null;
-        
-        Move bestMove = allMoves.get(0);
-        int bestValue = Integer.MIN_VALUE;
-        
-        for (Move move : allMoves) {
-            ChessPiece[][] newBoard = simulateMove(board.getBoardState(), move);
-            
-            int moveValue = alphaBeta(newBoard, depth - 1, Integer.MIN_VALUE, 
-                                      Integer.MAX_VALUE, false, board);
-            
-            if (moveValue > bestValue) {
-                bestValue = moveValue;
-                bestMove = move;
-            }
+    static final int INFINITY = 1000000;
+    static final int MATE_SCORE = 100000;
+    static final int MATE_BOUND = MATE_SCORE - MAX_PLY;
+    
+    public ChessAI() {
+        this(new TranspositionTable(DEFAULT_HASH_SIZE_MB));
+    }
+    
+    public ChessAI(TranspositionTable transpositionTable) {
+        this.maxDepth = MAX_SEARCH_DEPTH;
+        this.transpositionTable = transpositionTable;
+        this.workers = new SearchWorker[] {new SearchWorker(0, transpositionTable, stop, deadline)};
+    }
+    
+    public Move getBestMove(BitboardPosition position) {
+        return getBestMove(position, DEFAULT_MOVE_TIME_MS);
+    }
+    
+    // Searches on the calling thread. A search that another thread may stop should be started
+    // with startSearch instead, so that a stop sent right after it is not lost.
+    public Move getBestMove(BitboardPosition position, long timeBudgetMillis) {
+        if (openingBook != null) {
+            int bookMove = openingBook.probe(position);
+            if (bookMove != 0) return toMove(bookMove);
         }
-        
-        return bestMove;
+        armSearch(timeBudgetMillis);
+        return search(position);
     }
     
-    private int alphaBeta(ChessPiece[][] board, int depth, int alpha, int beta, 
-                          boolean maximizingPlayer, ChessBoard originalBoard) {
-        if (depth == 0) {
-            return evaluateBoard(board);
+    public CompletableFuture<Move> startSearch(BitboardPosition position, ExecutorService executor) {
+        return startSearch(position, DEFAULT_MOVE_TIME_MS, executor);
+    }
+    
+    // Searches on the given executor. The stop flag and the clock are armed here, before the task
+    // is submitted, so a stop() that arrives before the search starts still ends it.
+    public CompletableFuture<Move> startSearch(BitboardPosition position, long timeBudgetMillis, ExecutorService executor) {
+        if (openingBook != null) {
+            int bookMove = openingBook.probe(position);
+            if (bookMove != 0) return CompletableFuture.completedFuture(toMove(bookMove));
         }
-        
-        boolean currentPlayer = maximizingPlayer ? isWhite : !isWhite;
-        List<Move> moves = getAllPossibleMoves(board, currentPlayer, originalBoard);
-        
-        if (moves.isEmpty()) {
-            if (isKingInCheck(board, currentPlayer, originalBoard)) {
-                return maximizingPlayer ? Integer.MIN_VALUE + 1000 : Integer.MAX_VALUE - 1000;
-            }
-            return 0;
+        BitboardPosition root = new BitboardPosition(position);
+        armSearch(timeBudgetMillis);
+        return CompletableFuture.supplyAsync(() -> search(root), executor);
+    }
+    
+    // Searches the position the opponent is expected to reach on the given executor, with no time
+    // limit until ponderHit() sets one or stop() ends it. Both flags are armed before the task is
+    // submitted, so a stop that arrives before the search starts is not lost.
+    public CompletableFuture<Move> ponder(BitboardPosition position, ExecutorService executor) {
+        if (openingBook != null) {
+            int bookMove = openingBook.probe(position);
+            if (bookMove != 0) return CompletableFuture.completedFuture(toMove(bookMove));
         }
-        
-        if (maximizingPlayer) {
-            int maxEval = Integer.MIN_VALUE;
-            
-            for (Move move : moves) {
-                ChessPiece[][] newBoard = simulateMove(board, move);
-                int eval = alphaBeta(newBoard, depth - 1, alpha, beta, false, originalBoard);
-                
-                maxEval = Math.max(maxEval, eval);
-                alpha = Math.max(alpha, eval);
-                
-                if (beta <= alpha) {
-                    break;
-                }
-            }
-            
-            return maxEval;
-        } else {
-            int minEval = Integer.MAX_VALUE;
-            
-            for (Move move : moves) {
-                ChessPiece[][] newBoard = simulateMove(board, move);
-                int eval = alphaBeta(newBoard, depth - 1, alpha, beta, true, originalBoard);
-                
-                minEval = Math.min(minEval, eval);
-                beta = Math.min(beta, eval);
-                
-                if (beta <= alpha) {
-                    break;
-                }
+        BitboardPosition root = new BitboardPosition(position);
+        stop.set(false);
+        deadline.set(Long.MAX_VALUE);
+        ponderStart = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> search(root), executor);
+    }
+    
+    // The opponent played the predicted move: the pondering search gets the usual budget counted
+    // from when it started, and stops at once if it has already used that much.
+    public void ponderHit(long timeBudgetMillis) {
+        deadline.set(ponderStart + timeBudgetMillis * 1000000L);
+    }
+    
+    public void ponderHit() {
+        ponderHit(DEFAULT_MOVE_TIME_MS);
+    }
+    
+    // The reply expected after the given position: the second move of the last principal variation
+    // when the position is the one its first move leads to, otherwise the transposition table's
+    // move; 0 when there is none.
+    public int predictReply(BitboardPosition position) {
+        int[] line = getPrincipalVariation();
+        if (lastRoot != null && line.length >= 2) {
+            BitboardPosition expected = new BitboardPosition(lastRoot);
+            expected.makeMove(line[0]);
+            if (expected.getKey() == position.getKey()) {
+                int reply = position.findMove(line[1]);
+                if (reply != 0) return reply;
             }
-            
-            return minEval;
         }
+        int move = TranspositionTable.move(transpositionTable.probe(position.getKey()));
+        return move == 0 ? 0 : position.findMove(move);
     }
     
-    private int evaluateBoard(ChessPiece[][] board) {
-        int score = 0;
-        
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null) {
-                    int pieceValue = getPieceValue(piece);
-                    int positionBonus = getPositionBonus(piece, row, col);
-                    int totalValue = pieceValue + positionBonus;
-                    
-                    if (piece.isWhite() == isWhite) {
-                        score += totalValue;
-                    } else {
-                        score -= totalValue;
-                    }
-                }
-            }
+    // The line the last search expects, starting with its best move, from its last completed
+    // iteration. Empty before the first search or when it was stopped during the first iteration.
+    public int[] getPrincipalVariation() {
+        return workers[0].getPrincipalVariation();
+    }
+    
+    public Move getBestMoveBefore(BitboardPosition position, long deadlineMillis) {
+        long remaining = Math.max(0, deadlineMillis - System.currentTimeMillis());
+        return getBestMove(position, remaining);
+    }
+    
+    // Book moves are played without searching while the game is still in the book.
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+    
+    // Endings with few enough men are scored from the bitbases instead of being searched out.
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+        for (SearchWorker worker : workers) {
+            worker.setBitbases(bitbases);
         }
-        
-        return score;
-    }
-    
-    private int getPieceValue(ChessPiece piece) {
-        switch (piece.getType()) {
-            case PAWN: return PAWN_VALUE;
-            case KNIGHT: return KNIGHT_VALUE;
-            case BISHOP: return BISHOP_VALUE;
-            case ROOK: return ROOK_VALUE;
-            case QUEEN: return QUEEN_VALUE;
-            case KING: return KING_VALUE;
-            default: return 0;
+    }
+    
+    // Both selective techniques are on by default; switching them off trades depth for tactical
+    // certainty, which is what test suites measure.
+    public void setNullMovePruning(boolean enabled) {
+        this.nullMovePruning = enabled;
+        for (SearchWorker worker : workers) {
+            worker.setNullMovePruning(enabled);
         }
     }
     
-    private int getPositionBonus(ChessPiece piece, int row, int col) {
-        int adjustedRow = piece.isWhite() ? 7 - row : row;
-        
-        switch (piece.getType()) {
-            case PAWN: return PAWN_POSITION[adjustedRow][col];
-            case KNIGHT: return KNIGHT_POSITION[adjustedRow][col];
-            case BISHOP: return BISHOP_POSITION[adjustedRow][col];
-            case ROOK: return ROOK_POSITION[adjustedRow][col];
-            case QUEEN: return QUEEN_POSITION[adjustedRow][col];
-            case KING: return KING_MIDDLEGAME_POSITION[adjustedRow][col];
-            default: return 0;
+    public void setLateMoveReductions(boolean enabled) {
+        this.lateMoveReductions = enabled;
+        for (SearchWorker worker : workers) {
+            worker.setLateMoveReductions(enabled);
         }
     }
     
-    private boolean isKingInCheck(ChessPiece[][] board, boolean forWhite, ChessBoard originalBoard) {
-        Position kingPos = null;
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null && piece.getType() == PieceType.KING && 
-                    piece.isWhite() == forWhite) {
-                    kingPos = new Position(row, col);
-                    break;
-                }
-            }
-            if (kingPos != null) break;
+    // Stops each search thread after roughly this many nodes, checked every 2048 nodes.
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+        for (SearchWorker worker : workers) {
+            worker.setNodeLimit(nodeLimit);
         }
+    }
+    
+    // Drops the history and killer moves earlier searches left behind, so the next search orders
+    // its moves as a fresh engine would. The transposition table, which may be shared, is kept.
+    public void clearHistory() {
+        for (SearchWorker worker : workers) {
+            worker.clearHistory();
+        }
+    }
+    
+    // Keys of the positions played before the next position searched, oldest first; the search
+    // scores a return to any of them as a draw. Only positions since the last capture or pawn move
+    // can repeat, so older ones may be left out. Kept until replaced.
+    public void setGameHistory(long[] keys) {
+        this.gameHistory = keys.clone();
+    }
+    
+    // Called on the main search thread after each completed iteration.
+    public void setSearchListener(SearchListener listener) {
+        workers[0].setListener(listener);
+    }
+    
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_SEARCH_DEPTH));
+    }
+    
+    // Helper threads search the same root and only communicate through the shared transposition table.
+    public void setThreadCount(int threads) {
+        threads = Math.max(1, threads);
+        if (threads == workers.length) return;
         
-        if (kingPos == null) return false;
-        
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null && piece.isWhite() != forWhite) {
-                    List<Position> attacks = piece.getPossibleMoves(new Position(row, col), board);
-                    for (Position attack : attacks) {
-                        if (attack.equals(kingPos)) {
-                            return true;
-                        }
-                    }
-                }
-            }
+        SearchWorker[] resized = new SearchWorker[threads];
+        for (int i = 0; i < threads; i++) {
+            resized[i] = i < workers.length ? workers[i] : new SearchWorker(i, transpositionTable, stop, deadline);
+            resized[i].setBitbases(bitbases);
+            resized[i].setNodeLimit(nodeLimit);
+            resized[i].setNullMovePruning(nullMovePruning);
+            resized[i].setLateMoveReductions(lateMoveReductions);
         }
+        workers = resized;
         
-        return false;
+        if (helperPool != null) {
+            helperPool.shutdown();
+            helperPool = null;
+        }
+        if (threads > 1) {
+            helperPool = Executors.newFixedThreadPool(threads - 1, runnable -> {
+                Thread thread = new Thread(runnable, "ChessAI helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
     }
     
-    private ChessPiece[][] simulateMove(ChessPiece[][] board, Move move) {
-        ChessPiece[][] newBoard = new ChessPiece[8][8];
-        for (int i = 0; i < 8; i++) {
-            System.arraycopy(board[i], 0, newBoard[i], 0, 8);
+    public int getThreadCount() {
+        return workers.length;
+    }
+    
+    public void stop() {
+        stop.set(true);
+    }
+    
+    public int getCompletedDepth() {
+        return workers[0].getCompletedDepth();
+    }
+    
+    public long getNodeCount() {
+        long nodes = 0;
+        for (SearchWorker worker : workers) {
+            nodes += worker.getNodeCount();
         }
-        
-        newBoard[move.to.row][move.to.col] = newBoard[move.from.row][move.from.col];
-        newBoard[move.from.row][move.from.col] = null;
-        return newBoard;
+        return nodes;
+    }
+    
+    public long getQuiescenceNodeCount() {
+        long nodes = 0;
+        for (SearchWorker worker : workers) {
+            nodes += worker.getQuiescenceNodeCount();
+        }
+        return nodes;
+    }
+    
+    // Share of beta cutoffs produced by the first move searched; close to 1 means good ordering.
+    public double getFirstMoveCutoffRate() {
+        long cutoffs = getBetaCutoffCount();
+        long firstMoveCutoffs = 0;
+        for (SearchWorker worker : workers) {
+            firstMoveCutoffs += worker.getFirstMoveCutoffCount();
+        }
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
     }
     
-    private List<Move> getAllPossibleMoves(ChessPiece[][] board, boolean forWhite, 
-                                           ChessBoard originalBoard) {
-        List<Move> moves = new ArrayList<>();
+    public double getPawnHashHitRate() {
+        long probes = 0;
+        long hits = 0;
+        for (SearchWorker worker : workers) {
+            probes += worker.getPawnHashProbeCount();
+            hits += worker.getPawnHashHitCount();
+        }
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+    
+    public long getBetaCutoffCount() {
+        long cutoffs = 0;
+        for (SearchWorker worker : workers) {
+            cutoffs += worker.getBetaCutoffCount();
+        }
+        return cutoffs;
+    }
+    
+    private void armSearch(long timeBudgetMillis) {
+        stop.set(false);
+        deadline.set(System.nanoTime() + timeBudgetMillis * 1000000L);
+    }
+    
+    private Move search(BitboardPosition position) {
+        long start = System.nanoTime();
+        lastRoot = new BitboardPosition(position);
+        for (SearchWorker worker : workers) {
+            worker.setGameHistory(gameHistory, gameHistory.length);
+        }
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < workers.length; i++) {
+            SearchWorker helper = workers[i];
+            BitboardPosition helperPosition = new BitboardPosition(position);
+            helpers.add(helperPool.submit(() -> helper.search(helperPosition, maxDepth)));
+        }
         
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = board[row][col];
-                if (piece != null && piece.isWhite() == forWhite) {
-                    Position from = new Position(row, col);
-                    List<Position> possibleMoves = piece.getPossibleMoves(from, board);
-                    
-                    for (Position to : possibleMoves) {
-                        moves.add(new Move(from, to));
-                    }
+        SearchWorker main = workers[0];
+        try {
+            main.search(new BitboardPosition(position), maxDepth);
+        } finally {
+            stop.set(true);
+            for (Future<?> helper : helpers) {
+                try {
+                    helper.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Search helper failed", e.getCause());
                 }
             }
         }
         
-        return moves;
+        lastStatistics = collectStatistics(System.nanoTime() - start);
+        if (SearchStatistics.ENABLED) {
+            SearchMonitor.record(lastStatistics);
+        }
+        return main.getBestMove() == 0 ? null : toMove(main.getBestMove());
     }
     
-    private List<Move> getAllPossibleMoves(ChessBoard board, boolean forWhite) {
-        List<Move> allMoves = new ArrayList<>();
-        ChessPiece[][] boardState = board.getBoardState();
-        
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                ChessPiece piece = boardState[row][col];
-                if (piece != null && piece.isWhite() == forWhite) {
-                    Position from = new Position(row, col);
-                    List<Position> possibleMoves = piece.getPossibleMoves(from, boardState);
-                    
-                    for (Position to : possibleMoves) {
-                        if (!board.leavesKingInCheck(from, to, forWhite)) {
-                            allMoves.add(new Move(from, to));
-                        }
-                    }
-                }
-            }
+    // Sums the per-thread counters once every thread has stopped.
+    private SearchStatistics collectStatistics(long elapsedNanos) {
+        long nodes = 0;
+        long quiescenceNodes = 0;
+        long cutoffs = 0;
+        long firstMoveCutoffs = 0;
+        long probes = 0;
+        long hits = 0;
+        for (SearchWorker worker : workers) {
+            nodes += worker.getNodeCount();
+            quiescenceNodes += worker.getQuiescenceNodeCount();
+            cutoffs += worker.getBetaCutoffCount();
+            firstMoveCutoffs += worker.getFirstMoveCutoffCount();
+            probes += worker.getHashProbeCount();
+            hits += worker.getHashHitCount();
         }
-        return allMoves;
+        return new SearchStatistics(getCompletedDepth(), workers.length, elapsedNanos, nodes, quiescenceNodes,
+                                    cutoffs, firstMoveCutoffs, probes, hits);
+    }
+    
+    // Counters of the last completed search, or null before the first one. Transposition table
+    // probes are only counted when SearchStatistics.ENABLED is set.
+    public SearchStatistics getLastSearchStatistics() {
+        return lastStatistics;
+    }
+    
+    private Move toMove(int move) {
+        int from = BitboardPosition.moveFrom(move);
+        int to = BitboardPosition.moveTo(move);
+        int promotion = BitboardPosition.movePromotion(move);
+        return new Move(new Position(from >> 3, from & 7), new Position(to >> 3, to & 7),
+                        promotion == 0 ? null : PieceType.values()[promotion]);
+    }
+    
+    public interface SearchListener {
+        // The variation starts with the best move and is the caller's to keep.
+        void iterationCompleted(int depth, int score, int[] principalVariation);
     }
     
     public static class Move {
         public Position from;
         public Position to;
+        public PieceType promotion;
         
         public Move(Position from, Position to) {
+            this(from, to, null);
+        }
+        
+        public Move(Position from, Position to, PieceType promotion) {
             this.from = from;
             this.to = to;
+            this.promotion = promotion;
+        }
+        
+        public int encode() {
+            return BitboardPosition.encodeMove(BitboardPosition.square(from.row, from.col),
+                                               BitboardPosition.square(to.row, to.col),
+                                               promotion == null ? 0 : promotion.ordinal());
         }
     }
 }
@@ -1,15 +1,20 @@
 import javax.swing.*;
 import java.awt.*;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
     
 public class ChessBoard extends JPanel {
 	private static final int BOARD_SIZE = 8;
 	private static final int TILE_SIZE = 80;
+	// Mapped once and shared by every game; the AI searches from the first move when there is no book.
+	private static final OpeningBook OPENING_BOOK = OpeningBook.openIfPresent(java.nio.file.Paths.get("book.bin"));
+	private static final Bitbases BITBASES = Bitbases.openIfPresent(java.nio.file.Paths.get("bitbases"));
 
 	private ChessPiece[][] board;
 	private ChessGame parent;
@@ -24,19 +29,32 @@ public class ChessBoard extends JPanel {
 	private boolean whiteQueensideCastle = true;
 	private boolean blackKingsideCastle = true;
 	private boolean blackQueensideCastle = true;
+	private int halfmoveClock = 0;
+	private int fullmoveNumber = 1;
 	private ChessAI chessAI;
-
-	
-	private Position whiteKingPos = new Position(7, 4);
-	private Position blackKingPos = new Position(0, 4);
-	public ChessBoard(ChessGame parent) {
+	private final ExecutorService aiExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "ChessAI search");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private Future<?> aiSearch;
+	private int aiSearchId;
+	// While the human thinks, the AI searches the position after the reply it expects.
+	private BitboardPosition ponderPosition;
+	private ChessAI.Move ponderMove;
+	private boolean ponderDone;
+	private boolean ponderHit;
+
+		public ChessBoard(ChessGame parent) {
 		this.parent = parent;
 		this.board = new ChessPiece[BOARD_SIZE][BOARD_SIZE];
 		this.possibleMoves = new ArrayList<>();
 		this.whiteTurn = true;
 		this.gameActive = true;
 		this.pieceImages = new Image[2][6];
-		this.chessAI = new ChessAI(false); 
+		this.chessAI = new ChessAI();
+		chessAI.setOpeningBook(OPENING_BOOK);
+		chessAI.setBitbases(BITBASES);
 		setPreferredSize(new Dimension(BOARD_SIZE * TILE_SIZE, BOARD_SIZE * TILE_SIZE));
 		loadPieceImages();
 		initializeBoard();
@@ -138,14 +156,7 @@ public class ChessBoard extends JPanel {
 	            possibleMoves.clear();
 	            
 	            if (!parent.isPlayerVsPlayer() && !whiteTurn) {
-	                Timer timer = new Timer(1000, new ActionListener() {
-	                    @Override
-	                    public void actionPerformed(ActionEvent e) {
-	                        makeAIMove();
-	                    }
-	                });
-	                timer.setRepeats(false); 
-	                timer.start();
+	                makeAIMove();
 	            }
 	            
 	        } else if (clickedPiece != null && clickedPiece.isWhite() == whiteTurn) {
@@ -165,16 +176,12 @@ public class ChessBoard extends JPanel {
 	
 	private void movePiece(Position from, Position to) {
 	    ChessPiece movingPiece = board[from.row][from.col];
-
-	    // Update king position cache BEFORE moving
-	    if (movingPiece.getType() == PieceType.KING) {
-	        if (movingPiece.isWhite()) {
-	            whiteKingPos = to;
-	        } else {
-	            blackKingPos = to;
-	        }
+	    boolean capture = board[to.row][to.col] != null;
+	    halfmoveClock = capture || movingPiece.getType() == PieceType.PAWN ? 0 : halfmoveClock + 1;
+	    if (!movingPiece.isWhite()) {
+	        fullmoveNumber++;
 	    }
-	    
+
 	  
 	    if (movingPiece.getType() == PieceType.KING && Math.abs(from.col - to.col) == 2) {
 	       
@@ -243,24 +250,86 @@ public class ChessBoard extends JPanel {
 	        return;
 	    }
 	    
-	    ChessAI.Move aiMove = chessAI.getBestMove(this);
+	    final BitboardPosition position = toBitboardPosition();
+	    if (ponderPosition != null && ponderPosition.getKey() == position.getKey()) {
+	        // The predicted move was played, so the pondering search becomes this move's search.
+	        ponderHit = true;
+	        if (ponderDone) {
+	            applyAIMove(aiSearchId, ponderPosition, ponderMove);
+	        } else {
+	            chessAI.ponderHit();
+	        }
+	        return;
+	    }
+	    
+	    // On a miss the pondering work is thrown away; the transposition table it filled is kept.
+	    cancelAIMove();
+	    
+	    final int searchId = aiSearchId;
+	    CompletableFuture<ChessAI.Move> search = chessAI.startSearch(position, aiExecutor);
+	    aiSearch = search;
+	    search.thenAccept(move -> SwingUtilities.invokeLater(() -> applyAIMove(searchId, position, move)));
+	}
+	
+	// Stops any running search; a result that still arrives afterwards is ignored.
+	public void cancelAIMove() {
+	    aiSearchId++;
+	    ponderPosition = null;
+	    if (aiSearch != null) {
+	        chessAI.stop();
+	        aiSearch.cancel(false);
+	        aiSearch = null;
+	    }
+	}
+	
+	private void applyAIMove(int searchId, BitboardPosition position, ChessAI.Move aiMove) {
+	    if (searchId != aiSearchId || !gameActive || whiteTurn || parent.isPlayerVsPlayer()) {
+	        return;
+	    }
+	    aiSearch = null;
+	    ponderPosition = null;
 	    
 	    if (aiMove != null) {
-	        ChessPiece movingPiece = board[aiMove.from.row][aiMove.from.col];
-	        if (movingPiece != null) {
-	            board[aiMove.to.row][aiMove.to.col] = movingPiece;
-	            board[aiMove.from.row][aiMove.from.col] = null;
-	            
-	            if (movingPiece.getType() == PieceType.PAWN && 
-	                (aiMove.to.row == 0 || aiMove.to.row == 7)) {
-	                board[aiMove.to.row][aiMove.to.col] = Pieces.createPiece(PieceType.QUEEN, false);
-	            }
-	            
-	            whiteTurn = true;
-	            parent.updateStatus("White's turn");
-	            repaint();
-	            checkGameState();
-	        }
+	        position.makeMove(position.findMove(aiMove.encode()));
+	        loadPosition(position);
+	        
+	        parent.updateStatus(whiteTurn ? "White's turn" : "Black's turn");
+	        repaint();
+	        checkGameState();
+	        startPondering();
+	    }
+	}
+	
+	private void startPondering() {
+	    if (!gameActive || !whiteTurn || parent.isPlayerVsPlayer()) {
+	        return;
+	    }
+	    BitboardPosition position = toBitboardPosition();
+	    int reply = chessAI.predictReply(position);
+	    if (reply == 0) {
+	        return;
+	    }
+	    position.makeMove(reply);
+	    
+	    final int searchId = aiSearchId;
+	    ponderPosition = position;
+	    ponderMove = null;
+	    ponderDone = false;
+	    ponderHit = false;
+	    CompletableFuture<ChessAI.Move> search = chessAI.ponder(position, aiExecutor);
+	    aiSearch = search;
+	    search.thenAccept(move -> SwingUtilities.invokeLater(() -> ponderFinished(searchId, move)));
+	}
+	
+	// A search that ends before the human moves keeps its result until the prediction is checked.
+	private void ponderFinished(int searchId, ChessAI.Move move) {
+	    if (searchId != aiSearchId || ponderPosition == null) {
+	        return;
+	    }
+	    ponderDone = true;
+	    ponderMove = move;
+	    if (ponderHit) {
+	        applyAIMove(searchId, ponderPosition, move);
 	    }
 	}
 
@@ -301,35 +370,12 @@ public class ChessBoard extends JPanel {
 		}
 	}
 
-	private void handleCastling(Position from, Position to) {
-		int row = from.row;
-
-		if (to.col == 6) { 
-			board[row][5] = board[row][7]; 
-			board[row][7] = null;
-		} else if (to.col == 2) {
-			board[row][3] = board[row][0]; 
-			board[row][0] = null;
-		}
-	}
-
 	private void checkGameState() {
-	    boolean inCheck = isInCheck(whiteTurn);
+	    BitboardPosition position = toBitboardPosition();
+	    boolean inCheck = position.isInCheck(whiteTurn);
 	    
 	    if (inCheck) {
-	        boolean hasLegalMoves = false;
-	        
-	        for (int row = 0; row < BOARD_SIZE && !hasLegalMoves; row++) {
-	            for (int col = 0; col < BOARD_SIZE && !hasLegalMoves; col++) {
-	                ChessPiece piece = board[row][col];
-	                if (piece != null && piece.isWhite() == whiteTurn) {
-	                    List<Position> moves = getPossibleMoves(new Position(row, col));
-	                    if (!moves.isEmpty()) {
-	                        hasLegalMoves = true;
-	                    }
-	                }
-	            }
-	        }
+	        boolean hasLegalMoves = position.generateLegalMoves(new int[BitboardPosition.MAX_MOVES]) > 0;
 	        
 	        if (!hasLegalMoves) {
 	            gameActive = false;
@@ -346,111 +392,21 @@ public class ChessBoard extends JPanel {
 
 	private List<Position> getPossibleMoves(Position pos) {
 		List<Position> moves = new ArrayList<>();
-		
-		ChessPiece piece = board[pos.row][pos.col];
 
-		if (piece == null)
-			return moves;
-
-		moves = piece.getPossibleMoves(pos, board);
-
-		addSpecialMoves(pos, moves, piece);
-
-		moves.removeIf(move -> leavesKingInCheck(pos, move, piece.isWhite()));
-
-		return moves;
-	}
-
-	private void addSpecialMoves(Position pos, List<Position> moves, ChessPiece piece) {
-		if (piece.getType() == PieceType.PAWN && enPassantTarget != null) {
-			int direction = piece.isWhite() ? -1 : 1;
-			if (pos.row == enPassantTarget.row - direction && Math.abs(pos.col - enPassantTarget.col) == 1) {
-				int capturedRow = piece.isWhite() ? enPassantTarget.row + 1 : enPassantTarget.row - 1;
-				ChessPiece targetPawn = board[capturedRow][enPassantTarget.col];
-				if (targetPawn != null && targetPawn.getType() == PieceType.PAWN && 
-					targetPawn.isWhite() != piece.isWhite()) {
-					moves.add(enPassantTarget);
-				}
-			}
+		BitboardPosition position = toBitboardPosition();
+		int[] legalMoves = new int[BitboardPosition.MAX_MOVES];
+		int count = position.generateLegalMoves(legalMoves);
+		int from = BitboardPosition.square(pos.row, pos.col);
+		for (int i = 0; i < count; i++) {
+			int move = legalMoves[i];
+			// The promotion piece is chosen in movePiece, so list each promotion square once.
+			int promotion = BitboardPosition.movePromotion(move);
+			if (BitboardPosition.moveFrom(move) != from || (promotion != 0 && promotion != PieceType.QUEEN.ordinal()))
+				continue;
+			int to = BitboardPosition.moveTo(move);
+			moves.add(new Position(to / 8, to % 8));
 		}
-
-		if (piece.getType() == PieceType.KING) {
-			addCastlingMoves(pos, moves, piece.isWhite());
-		}
-	}
-
-	private void addCastlingMoves(Position pos, List<Position> moves, boolean isWhite) {
-		if (isInCheck(isWhite))
-			return;
-
-		int row = isWhite ? 7 : 0;
-		if (pos.row != row)
-			return;
-
-		if ((isWhite && whiteKingsideCastle) || (!isWhite && blackKingsideCastle)) {
-			if (board[row][5] == null && board[row][6] == null && !isSquareAttacked(new Position(row, 4), !isWhite)
-					&& !isSquareAttacked(new Position(row, 5), !isWhite)) {
-				moves.add(new Position(row, 6));
-			}
-		}
-
-		if ((isWhite && whiteQueensideCastle) || (!isWhite && blackQueensideCastle)) {
-			if (board[row][1] == null && board[row][2] == null && board[row][3] == null
-					&& !isSquareAttacked(new Position(row, 4), !isWhite)
-					&& !isSquareAttacked(new Position(row, 3), !isWhite)) {
-				moves.add(new Position(row, 2));
-			}
-		}
-	}
-
-	private boolean isSquareAttacked(Position square, boolean byWhite) {
-		for (int row = 0; row < BOARD_SIZE; row++) {
-			for (int col = 0; col < BOARD_SIZE; col++) {
-				ChessPiece piece = board[row][col];
-				if (piece != null && piece.isWhite() == byWhite) {
-					List<Position> attacks = piece.getPossibleMoves(new Position(row, col), board);
-					for (Position attack : attacks) {
-						if (attack.equals(square)) {
-							return true;
-						}
-					}
-				}
-			}
-		}
-		return false;
-	}
-
-	public boolean leavesKingInCheck(Position from, Position to, boolean movingPieceIsWhite) {
-		ChessPiece temp = board[to.row][to.col];
-		board[to.row][to.col] = board[from.row][from.col];
-		board[from.row][from.col] = null;
-
-		boolean inCheck = isInCheck(movingPieceIsWhite);
-
-		board[from.row][from.col] = board[to.row][to.col];
-		board[to.row][to.col] = temp;
-
-		return inCheck;
-	}
-
-	private boolean isInCheck(boolean forWhite) {
-		Position kingPos = findKing(forWhite);
-		if (kingPos == null)
-			return false;
-
-		return isSquareAttacked(kingPos, !forWhite);
-	}
-
-	private Position findKing(boolean white) {
-		for (int row = 0; row < BOARD_SIZE; row++) {
-			for (int col = 0; col < BOARD_SIZE; col++) {
-				ChessPiece piece = board[row][col];
-				if (piece != null && piece.getType() == PieceType.KING && piece.isWhite() == white) {
-					return new Position(row, col);
-				}
-			}
-		}
-		return null;
+		return moves;
 	}
 
 	private boolean isPossibleMove(Position pos) {
@@ -500,20 +456,21 @@ public class ChessBoard extends JPanel {
 	    blackKingsideCastle = true;
 	    blackQueensideCastle = true;
 	    enPassantTarget = null;
-	    
-	    // Initialize king positions
-	    whiteKingPos = new Position(7, 4);
-	    blackKingPos = new Position(0, 4);
+	    halfmoveClock = 0;
+	    fullmoveNumber = 1;
 	}
 
 	public void newGame() {
+	    cancelAIMove();
 	    initializeBoard();
 	    selectedPosition = null;
 	    possibleMoves.clear();
 	    whiteTurn = true;
 	    gameActive = true;
 	    
-	    chessAI = new ChessAI(false);
+	    chessAI = new ChessAI();
+	    chessAI.setOpeningBook(OPENING_BOOK);
+	    chessAI.setBitbases(BITBASES);
 	    
 	    repaint();
 	}
@@ -571,4 +528,63 @@ public class ChessBoard extends JPanel {
 		repaint();
 	}
 
+	public boolean isWhiteTurn() {
+		return whiteTurn;
+	}
+
+	public BitboardPosition toBitboardPosition() {
+		int castlingRights = 0;
+		if (whiteKingsideCastle)
+			castlingRights |= BitboardPosition.WHITE_KINGSIDE;
+		if (whiteQueensideCastle)
+			castlingRights |= BitboardPosition.WHITE_QUEENSIDE;
+		if (blackKingsideCastle)
+			castlingRights |= BitboardPosition.BLACK_KINGSIDE;
+		if (blackQueensideCastle)
+			castlingRights |= BitboardPosition.BLACK_QUEENSIDE;
+
+		int enPassantSquare = enPassantTarget == null ? -1
+				: BitboardPosition.square(enPassantTarget.row, enPassantTarget.col);
+
+		return new BitboardPosition(board, whiteTurn, castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+	}
+
+	public String toFen() {
+		return toBitboardPosition().toFen();
+	}
+
+	// Sets up any position, including side to move, castling rights, en passant square and move
+	// counters. Throws IllegalArgumentException and leaves the board alone if the FEN is invalid.
+	public void loadFen(String fen) {
+	    BitboardPosition position = BitboardPosition.fromFen(fen);
+	    cancelAIMove();
+	    loadPosition(position);
+	    selectedPosition = null;
+	    possibleMoves.clear();
+	    gameActive = true;
+	    parent.updateStatus(whiteTurn ? "White's turn" : "Black's turn");
+	    repaint();
+	    checkGameState();
+	    if (!parent.isPlayerVsPlayer() && !whiteTurn) {
+	        makeAIMove();
+	    }
+	}
+
+	public void loadPosition(BitboardPosition position) {
+		setBoardState(position.toBoardState());
+
+		int castlingRights = position.getCastlingRights();
+		whiteKingsideCastle = (castlingRights & BitboardPosition.WHITE_KINGSIDE) != 0;
+		whiteQueensideCastle = (castlingRights & BitboardPosition.WHITE_QUEENSIDE) != 0;
+		blackKingsideCastle = (castlingRights & BitboardPosition.BLACK_KINGSIDE) != 0;
+		blackQueensideCastle = (castlingRights & BitboardPosition.BLACK_QUEENSIDE) != 0;
+
+		int enPassantSquare = position.getEnPassantSquare();
+		enPassantTarget = enPassantSquare < 0 ? null : new Position(enPassantSquare / 8, enPassantSquare % 8);
+
+		whiteTurn = position.isWhiteToMove();
+		halfmoveClock = position.getHalfmoveClock();
+		fullmoveNumber = position.getFullmoveNumber();
+	}
+
 }
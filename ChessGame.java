@@ -8,6 +8,7 @@ public class ChessGame extends JFrame {
     private ChessBoard board;
     private JPanel controlPanel;
     private JButton newGameButton;
+    private JButton fenButton;
     private JComboBox<String> gameModeComboBox;
     private JLabel statusLabel;
     private boolean playerVsPlayer = true;
@@ -25,10 +26,12 @@ public class ChessGame extends JFrame {
 
         controlPanel = new JPanel();
         newGameButton = new JButton("New Game");
+        fenButton = new JButton("FEN...");
         gameModeComboBox = new JComboBox<>(new String[]{"Player vs Player", "Player vs AI"});
         statusLabel = new JLabel("White's turn");
 
         controlPanel.add(newGameButton);
+        controlPanel.add(fenButton);
         controlPanel.add(gameModeComboBox);
         controlPanel.add(statusLabel);
 
@@ -42,6 +45,24 @@ public class ChessGame extends JFrame {
             }
         });
 
+        // Shows the current position so it can be copied, and loads whatever FEN is entered instead.
+        fenButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                String current = board.toFen();
+                Object entered = JOptionPane.showInputDialog(ChessGame.this, "Position (FEN):", "FEN",
+                        JOptionPane.PLAIN_MESSAGE, null, null, current);
+                if (entered == null || entered.toString().trim().isEmpty() || entered.toString().trim().equals(current)) {
+                    return;
+                }
+                try {
+                    board.loadFen(entered.toString());
+                } catch (IllegalArgumentException ex) {
+                    JOptionPane.showMessageDialog(ChessGame.this, ex.getMessage(), "Invalid FEN", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+
         gameModeComboBox.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -0,0 +1,263 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Runs an EPD test suite: every position with a "bm" (best move) or "am" (avoid move) operation
+// is searched with a fixed budget and counts as solved if the engine's final choice is one of the
+// best moves and none of the moves to avoid. Positions are searched in parallel, one single-threaded
+// engine per core, and each starts from an empty transposition table and move-ordering history,
+// so with -nodes the results do not depend on which thread searched which position.
+public class EpdRunner {
+    private static final long NO_TIME_LIMIT_MS = 24L * 60 * 60 * 1000;
+    private static final long DEFAULT_MOVE_TIME_MS = 1000;
+    private static final int DEFAULT_HASH_MB = 16;
+
+    private final long moveTime;
+    private final long nodeLimit;
+    private final int hashSizeMegabytes;
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private final ThreadLocal<Engine> engines = ThreadLocal.withInitial(this::createEngine);
+
+    public EpdRunner(long moveTime, long nodeLimit, int hashSizeMegabytes) {
+        this.moveTime = moveTime;
+        this.nodeLimit = nodeLimit;
+        this.hashSizeMegabytes = hashSizeMegabytes;
+    }
+
+    // Usage: EpdRunner <suite.epd> [-movetime MS | -nodes N] [-threads N] [-hash MB] [-nullmove on|off] [-lmr on|off]
+    // With -nodes the budget is per position and the results do not depend on machine speed.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: EpdRunner <suite.epd> [-movetime MS | -nodes N] [-threads N] [-hash MB] [-nullmove on|off] [-lmr on|off]");
+            System.exit(1);
+        }
+        long moveTime = DEFAULT_MOVE_TIME_MS;
+        long nodes = Long.MAX_VALUE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hash = DEFAULT_HASH_MB;
+        boolean nullMove = true;
+        boolean lmr = true;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-movetime": moveTime = Long.parseLong(args[i + 1]); break;
+                case "-nodes": nodes = Long.parseLong(args[i + 1]); moveTime = NO_TIME_LIMIT_MS; break;
+                case "-threads": threads = Math.max(1, Integer.parseInt(args[i + 1])); break;
+                case "-hash": hash = Math.max(1, Integer.parseInt(args[i + 1])); break;
+                case "-nullmove": nullMove = !args[i + 1].equals("off"); break;
+                case "-lmr": lmr = !args[i + 1].equals("off"); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<Problem> problems = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                try {
+                    Problem problem = Problem.parse(line, lineNumber);
+                    if (problem.bestMoves.isEmpty() && problem.avoidMoves.isEmpty()) continue;
+                    problems.add(problem);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("line " + lineNumber + ": " + e.getMessage());
+                }
+            }
+        }
+        EpdRunner runner = new EpdRunner(moveTime, nodes, hash);
+        runner.setNullMovePruning(nullMove);
+        runner.setLateMoveReductions(lmr);
+        runner.run(problems, threads);
+    }
+
+    public void setNullMovePruning(boolean nullMovePruning) {
+        this.nullMovePruning = nullMovePruning;
+    }
+
+    public void setLateMoveReductions(boolean lateMoveReductions) {
+        this.lateMoveReductions = lateMoveReductions;
+    }
+
+    public void run(List<Problem> problems, int threads) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "EPD search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        List<Future<Result>> futures = new ArrayList<>();
+        for (Problem problem : problems) {
+            futures.add(pool.submit(() -> solve(problem)));
+        }
+
+        System.out.printf("%-24s %-6s %-8s %10s %6s %12s%n", "id", "result", "move", "solved ms", "depth", "nodes");
+        int solved = 0;
+        long solveTime = 0;
+        long nodes = 0;
+        long searchTime = 0;
+        try {
+            for (Future<Result> future : futures) {
+                Result result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("Search failed", e.getCause());
+                }
+                System.out.printf("%-24s %-6s %-8s %10s %6d %12d%n", result.id, result.solved ? "ok" : "fail", result.move,
+                                  result.solved ? Long.toString(result.solveMillis) : "-", result.depth, result.nodes);
+                if (result.solved) {
+                    solved++;
+                    solveTime += result.solveMillis;
+                }
+                nodes += result.nodes;
+                searchTime += result.searchNanos;
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        double wall = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.out.println();
+        System.out.printf("solved %d/%d (%.1f%%)%n", solved, problems.size(), problems.isEmpty() ? 0 : 100.0 * solved / problems.size());
+        System.out.printf("average time to solution %.0f ms%n", solved == 0 ? 0 : (double) solveTime / solved);
+        System.out.printf("nodes %d, %.0f nodes/s per thread, %.0f nodes/s total over %d threads%n",
+                          nodes, nodes / Math.max(1e-9, searchTime / 1e9), nodes / wall, threads);
+    }
+
+    private Engine createEngine() {
+        TranspositionTable table = new TranspositionTable(hashSizeMegabytes);
+        Engine engine = new Engine(new ChessAI(table), table);
+        engine.ai.setNodeLimit(nodeLimit);
+        engine.ai.setNullMovePruning(nullMovePruning);
+        engine.ai.setLateMoveReductions(lateMoveReductions);
+        engine.ai.setSearchListener(engine);
+        return engine;
+    }
+
+    private Result solve(Problem problem) {
+        Engine engine = engines.get();
+        engine.table.clear();
+        engine.ai.clearHistory();
+        engine.problem = problem;
+        engine.solvedAt = -1;
+        engine.start = System.nanoTime();
+        ChessAI.Move best = engine.ai.getBestMove(new BitboardPosition(problem.position), moveTime);
+        long elapsed = System.nanoTime() - engine.start;
+
+        Result result = new Result();
+        result.id = problem.id;
+        int move = best == null ? 0 : problem.position.findMove(best.encode());
+        result.move = move == 0 ? "none" : problem.position.toSan(move);
+        result.solved = move != 0 && problem.accepts(move);
+        result.solveMillis = result.solved && engine.solvedAt >= 0 ? engine.solvedAt / 1000000 : elapsed / 1000000;
+        result.depth = engine.ai.getCompletedDepth();
+        result.nodes = engine.ai.getNodeCount();
+        result.searchNanos = elapsed;
+        return result;
+    }
+
+    static final class Problem {
+        String id;
+        BitboardPosition position;
+        final List<Integer> bestMoves = new ArrayList<>();
+        final List<Integer> avoidMoves = new ArrayList<>();
+
+        // <board> <side> <castling> <en passant> {<opcode> <operand>...;}
+        static Problem parse(String line, int lineNumber) {
+            String[] fields = line.split("\\s+", 5);
+            if (fields.length < 4) throw new IllegalArgumentException("Invalid EPD: " + line);
+            Problem problem = new Problem();
+            problem.id = "#" + lineNumber;
+            problem.position = BitboardPosition.fromFen(fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3]);
+            if (fields.length < 5) return problem;
+
+            for (String operation : splitOperations(fields[4])) {
+                String[] operands = operation.trim().split("\\s+");
+                if (operands.length < 2) continue;
+                switch (operands[0]) {
+                    case "id":
+                        problem.id = operation.trim().substring(2).trim().replace("\"", "");
+                        break;
+                    case "bm":
+                    case "am":
+                        for (int i = 1; i < operands.length; i++) {
+                            int move = problem.position.parseSan(operands[i]);
+                            if (move == 0) move = problem.position.parseMove(operands[i]);
+                            if (move == 0) throw new IllegalArgumentException("Illegal move " + operands[i] + " in " + line);
+                            (operands[0].equals("bm") ? problem.bestMoves : problem.avoidMoves).add(move);
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+            return problem;
+        }
+
+        // Semicolons inside quoted operands do not end an operation.
+        private static List<String> splitOperations(String text) {
+            List<String> operations = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (char c : text.toCharArray()) {
+                if (c == '"') quoted = !quoted;
+                if (c == ';' && !quoted) {
+                    operations.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            if (current.toString().trim().length() > 0) operations.add(current.toString());
+            return operations;
+        }
+
+        boolean accepts(int move) {
+            return (bestMoves.isEmpty() || bestMoves.contains(move)) && !avoidMoves.contains(move);
+        }
+    }
+
+    private static final class Result {
+        String id;
+        String move;
+        boolean solved;
+        long solveMillis;
+        int depth;
+        long nodes;
+        long searchNanos;
+    }
+
+    // Remembers when the best move last changed to a correct one, which is the time to solution
+    // if it is still the answer when the search ends.
+    private static final class Engine implements ChessAI.SearchListener {
+        final ChessAI ai;
+        final TranspositionTable table;
+        Problem problem;
+        long start;
+        long solvedAt;
+
+        Engine(ChessAI ai, TranspositionTable table) {
+            this.ai = ai;
+            this.table = table;
+        }
+
+        @Override
+        public void iterationCompleted(int depth, int score, int[] principalVariation) {
+            if (!problem.accepts(principalVariation[0])) {
+                solvedAt = -1;
+            } else if (solvedAt < 0) {
+                solvedAt = System.nanoTime() - start;
+            }
+        }
+    }
+}
@@ -0,0 +1,197 @@
+public class Evaluation {
+    static final int PAWN_VALUE = 100;
+    static final int KNIGHT_VALUE = 320;
+    static final int BISHOP_VALUE = 330;
+    static final int ROOK_VALUE = 500;
+    static final int QUEEN_VALUE = 900;
+    static final int KING_VALUE = 20000;
+    
+    private static final int[][] PAWN_POSITION = {
+        {0, 0, 0, 0, 0, 0, 0, 0},
+        {50, 50, 50, 50, 50, 50, 50, 50},
+        {10, 10, 20, 30, 30, 20, 10, 10},
+        {5, 5, 10, 25, 25, 10, 5, 5},
+        {0, 0, 0, 20, 20, 0, 0, 0},
+        {5, -5, -10, 0, 0, -10, -5, 5},
+        {5, 10, 10, -20, -20, 10, 10, 5},
+        {0, 0, 0, 0, 0, 0, 0, 0}
+    };
+    
+    private static final int[][] KNIGHT_POSITION = {
+        {-50, -40, -30, -30, -30, -30, -40, -50},
+        {-40, -20, 0, 0, 0, 0, -20, -40},
+        {-30, 0, 10, 15, 15, 10, 0, -30},
+        {-30, 5, 15, 20, 20, 15, 5, -30},
+        {-30, 0, 15, 20, 20, 15, 0, -30},
+        {-30, 5, 10, 15, 15, 10, 5, -30},
+        {-40, -20, 0, 5, 5, 0, -20, -40},
+        {-50, -40, -30, -30, -30, -30, -40, -50}
+    };
+    
+    private static final int[][] BISHOP_POSITION = {
+        {-20, -10, -10, -10, -10, -10, -10, -20},
+        {-10, 0, 0, 0, 0, 0, 0, -10},
+        {-10, 0, 5, 10, 10, 5, 0, -10},
+        {-10, 5, 5, 10, 10, 5, 5, -10},
+        {-10, 0, 10, 10, 10, 10, 0, -10},
+        {-10, 10, 10, 10, 10, 10, 10, -10},
+        {-10, 5, 0, 0, 0, 0, 5, -10},
+        {-20, -10, -10, -10, -10, -10, -10, -20}
+    };
+    
+    private static final int[][] ROOK_POSITION = {
+        {0, 0, 0, 0, 0, 0, 0, 0},
+        {5, 10, 10, 10, 10, 10, 10, 5},
+        {-5, 0, 0, 0, 0, 0, 0, -5},
+        {-5, 0, 0, 0, 0, 0, 0, -5},
+        {-5, 0, 0, 0, 0, 0, 0, -5},
+        {-5, 0, 0, 0, 0, 0, 0, -5},
+        {-5, 0, 0, 0, 0, 0, 0, -5},
+        {0, 0, 0, 5, 5, 0, 0, 0}
+    };
+    
+    private static final int[][] QUEEN_POSITION = {
+        {-20, -10, -10, -5, -5, -10, -10, -20},
+        {-10, 0, 0, 0, 0, 0, 0, -10},
+        {-10, 0, 5, 5, 5, 5, 0, -10},
+        {-5, 0, 5, 5, 5, 5, 0, -5},
+        {0, 0, 5, 5, 5, 5, 0, -5},
+        {-10, 5, 5, 5, 5, 5, 0, -10},
+        {-10, 0, 5, 0, 0, 0, 0, -10},
+        {-20, -10, -10, -5, -5, -10, -10, -20}
+    };
+    
+    private static final int[][] KING_MIDDLEGAME_POSITION = {
+        {-30, -40, -40, -50, -50, -40, -40, -30},
+        {-30, -40, -40, -50, -50, -40, -40, -30},
+        {-30, -40, -40, -50, -50, -40, -40, -30},
+        {-30, -40, -40, -50, -50, -40, -40, -30},
+        {-20, -30, -30, -40, -40, -30, -30, -20},
+        {-10, -20, -20, -20, -20, -20, -20, -10},
+        {20, 20, 0, 0, 0, 0, 20, 20},
+        {20, 30, 10, 0, 0, 10, 30, 20}
+    };
+    
+    private static final int[][] KING_ENDGAME_POSITION = {
+        {-50, -40, -30, -20, -20, -30, -40, -50},
+        {-30, -20, -10, 0, 0, -10, -20, -30},
+        {-30, -10, 20, 30, 30, 20, -10, -30},
+        {-30, -10, 30, 40, 40, 30, -10, -30},
+        {-30, -10, 30, 40, 40, 30, -10, -30},
+        {-30, -10, 20, 30, 30, 20, -10, -30},
+        {-30, -30, 0, 0, 0, 0, -30, -30},
+        {-50, -30, -30, -30, -30, -30, -30, -50}
+    };
+    
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    private static final int BACKWARD_MIDDLEGAME = -8;
+    private static final int BACKWARD_ENDGAME = -10;
+    // Indexed by how many rows the pawn has advanced from its own back rank.
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 20, 35, 60, 100, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 40, 70, 120, 200, 0};
+    
+    private static final long[] FILES = new long[8];
+    private static final long[] ADJACENT_FILES = new long[8];
+    // [0] white, [1] black: squares in front of a pawn on its own and adjacent files, and
+    // squares beside or behind it on adjacent files.
+    private static final long[][] PASSED_MASKS = new long[2][64];
+    private static final long[][] SUPPORT_MASKS = new long[2][64];
+    
+    // Game phase: 24 with all minor and major pieces on the board, 0 with only kings and pawns.
+    static final int MAX_PHASE = 24;
+    static final int[] PHASE_WEIGHT = {0, 1, 1, 2, 4, 0};
+    
+    // Material plus piece-square value for each piece index and square, positive for white and
+    // negative for black, so BitboardPosition can keep running totals as pieces come and go.
+    static final int[][] MIDDLEGAME = new int[12][64];
+    static final int[][] ENDGAME = new int[12][64];
+    
+    static {
+        for (int col = 0; col < 8; col++) {
+            FILES[col] = 0x0101010101010101L << col;
+        }
+        for (int col = 0; col < 8; col++) {
+            ADJACENT_FILES[col] = (col > 0 ? FILES[col - 1] : 0) | (col < 7 ? FILES[col + 1] : 0);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int row = sq >> 3;
+            int col = sq & 7;
+            long span = FILES[col] | ADJACENT_FILES[col];
+            for (int r = 0; r < 8; r++) {
+                long rowMask = 0xFFL << (r * 8);
+                if (r < row) PASSED_MASKS[0][sq] |= span & rowMask;
+                if (r > row) PASSED_MASKS[1][sq] |= span & rowMask;
+                if (r >= row) SUPPORT_MASKS[0][sq] |= ADJACENT_FILES[col] & rowMask;
+                if (r <= row) SUPPORT_MASKS[1][sq] |= ADJACENT_FILES[col] & rowMask;
+            }
+        }
+        
+        int[] values = {PAWN_VALUE, KNIGHT_VALUE, BISHOP_VALUE, ROOK_VALUE, QUEEN_VALUE, KING_VALUE};
+        int[][][] middlegame = {PAWN_POSITION, KNIGHT_POSITION, BISHOP_POSITION, ROOK_POSITION, QUEEN_POSITION, KING_MIDDLEGAME_POSITION};
+        int[][][] endgame = {PAWN_POSITION, KNIGHT_POSITION, BISHOP_POSITION, ROOK_POSITION, QUEEN_POSITION, KING_ENDGAME_POSITION};
+        
+        // The tables are drawn from white's side with row 0 as the eighth rank, like the board.
+        for (int type = 0; type < 6; type++) {
+            for (int sq = 0; sq < 64; sq++) {
+                int row = sq >> 3;
+                int col = sq & 7;
+                MIDDLEGAME[type][sq] = values[type] + middlegame[type][row][col];
+                ENDGAME[type][sq] = values[type] + endgame[type][row][col];
+                MIDDLEGAME[6 + type][sq] = -(values[type] + middlegame[type][7 - row][col]);
+                ENDGAME[6 + type][sq] = -(values[type] + endgame[type][7 - row][col]);
+            }
+        }
+    }
+    
+    // Scored from the point of view of the side to move.
+    static int evaluate(BitboardPosition position, PawnHashTable pawnTable) {
+        int pawns = pawnTable.lookup(position);
+        int middlegame = position.middlegameScore + pawnTable.middlegame(pawns);
+        int endgame = position.endgameScore + pawnTable.endgame(pawns);
+        int phase = Math.min(position.phase, MAX_PHASE);
+        int score = (middlegame * phase + endgame * (MAX_PHASE - phase)) / MAX_PHASE;
+        return position.isWhiteToMove() ? score : -score;
+    }
+    
+    // Doubled, isolated, backward and passed pawn terms, positive for white.
+    static int pawnStructure(long whitePawns, long blackPawns, boolean middlegame) {
+        return pawnTerms(whitePawns, blackPawns, true, middlegame) - pawnTerms(blackPawns, whitePawns, false, middlegame);
+    }
+    
+    private static int pawnTerms(long own, long enemy, boolean white, boolean middlegame) {
+        int side = white ? 0 : 1;
+        int score = 0;
+        
+        for (int col = 0; col < 8; col++) {
+            int onFile = Long.bitCount(own & FILES[col]);
+            if (onFile > 1) {
+                score += (onFile - 1) * (middlegame ? DOUBLED_MIDDLEGAME : DOUBLED_ENDGAME);
+            }
+        }
+        
+        long pawns = own;
+        while (pawns != 0) {
+            int sq = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int col = sq & 7;
+            
+            if ((own & ADJACENT_FILES[col]) == 0) {
+                score += middlegame ? ISOLATED_MIDDLEGAME : ISOLATED_ENDGAME;
+            } else if ((own & SUPPORT_MASKS[side][sq]) == 0) {
+                int stop = white ? sq - 8 : sq + 8;
+                if ((Attacks.pawn(stop, white) & enemy) != 0) {
+                    score += middlegame ? BACKWARD_MIDDLEGAME : BACKWARD_ENDGAME;
+                }
+            }
+            
+            if ((enemy & PASSED_MASKS[side][sq]) == 0 && (own & PASSED_MASKS[side][sq] & FILES[col]) == 0) {
+                int advanced = white ? 7 - (sq >> 3) : sq >> 3;
+                score += middlegame ? PASSED_MIDDLEGAME[advanced] : PASSED_ENDGAME[advanced];
+            }
+        }
+        return score;
+    }
+}
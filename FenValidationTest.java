@@ -0,0 +1,56 @@
+// Fails (exit status 1) unless BitboardPosition.fromFen turns away, with IllegalArgumentException,
+// every position the move generator cannot handle, and still accepts legal ones.
+//
+// Usage: java FenValidationTest
+public class FenValidationTest {
+    private static final String[] INVALID = {
+        "P3k3/8/8/8/8/8/8/4K3 w - - 0 1",               // white pawn on the last rank
+        "4k3/8/8/8/8/8/8/4K2p b - - 0 1",               // black pawn on the first rank
+        "4k3/8/8/8/8/8/8/p3K3 w - - 0 1",               // black pawn on its own back rank
+        "4k3/8/8/8/8/8/8/8 w - - 0 1",                  // no white king
+        "8/8/8/8/8/8/8/4K3 b - - 0 1",                  // no black king
+        "4k3/8/8/8/8/8/8/3KK3 w - - 0 1",               // two white kings
+        "4k3/8/8/8/8/8/4q3/4K3 b - - 0 1",              // white, not to move, is in check
+        "4k3/8/8/8/8/8/8/4K3 x - - 0 1",                // bad side to move
+        "4k3/8/8/8/8/8/4K3 w - - 0 1",                  // seven rows
+        "4k3/8/8/8/8/8/8/4K3 w - e 0 1"                 // bad en passant square
+    };
+    private static final String[] VALID = {
+        BitboardPosition.START_FEN,
+        "4k3/P7/8/8/8/8/7p/4K3 w - - 0 1",
+        "4k3/8/8/8/8/8/4q3/4K3 w - - 0 1",
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"
+    };
+
+    public static void main(String[] args) {
+        int failures = 0;
+        for (String fen : INVALID) {
+            try {
+                BitboardPosition.fromFen(fen);
+                System.out.println("FAIL accepted: " + fen);
+                failures++;
+            } catch (IllegalArgumentException e) {
+                System.out.println("ok   rejected: " + fen + " (" + e.getMessage() + ")");
+            } catch (RuntimeException e) {
+                System.out.println("FAIL threw " + e + ": " + fen);
+                failures++;
+            }
+        }
+        for (String fen : VALID) {
+            try {
+                BitboardPosition position = BitboardPosition.fromFen(fen);
+                position.generateLegalMoves(new int[BitboardPosition.MAX_MOVES]);
+                System.out.println("ok   accepted: " + fen);
+            } catch (RuntimeException e) {
+                System.out.println("FAIL threw " + e + ": " + fen);
+                failures++;
+            }
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " FEN checks failed");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+}
@@ -0,0 +1,168 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Serves SessionManager games over a line-based TCP protocol. Every connection gets its own
+// thread, which spends nearly all its time blocked on the socket or on an AI reply, so on a JDK
+// with virtual threads those are used; otherwise a cached pool of platform threads is. AI
+// searches themselves never run on these threads.
+//
+//   new [ai white|black|both|none] [movetime MS] [depth N] [fen <fen>]  -> ok <id>
+//   move <id> <move>   plays the move and waits for the AI  -> ok <reply|-> <status> [reason]
+//   wait <id>          waits for a pending AI move, or gives the last move played
+//                                                           -> ok <move|-> <status> [reason]
+//   show <id>                                               -> ok <fen> <status> [reason]
+//   close <id>                                              -> ok
+//   stats                                                   -> ok games=N queued=N aimoves=N
+//   quit
+// Errors are answered with "error <message>" and leave the connection open.
+public class GameServer {
+    private static final int DEFAULT_PORT = 7070;
+
+    private final SessionManager sessions;
+    private final ExecutorService connections = newConnectionExecutor();
+
+    public GameServer(SessionManager sessions) {
+        this.sessions = sessions;
+    }
+
+    // Usage: GameServer [port] [searchThreads] [hashMB]
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int hash = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        new GameServer(new SessionManager(threads, hash)).serve(port);
+    }
+
+    // Virtual threads where the runtime has them (JDK 21+), found by reflection so the server
+    // still builds and runs on older JDKs.
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "Game connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public void serve(int port) throws IOException {
+        try (ServerSocket server = new ServerSocket(port)) {
+            while (true) {
+                Socket socket = server.accept();
+                connections.execute(() -> handle(socket));
+            }
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(connection.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) continue;
+                if (line.equals("quit")) break;
+                out.println(execute(line));
+            }
+        } catch (IOException e) {
+            // The client went away; its games stay until closed.
+        }
+    }
+
+    // Runs one command and returns the reply line. Blocks while an AI move it waits for is searched.
+    public String execute(String line) {
+        String[] tokens = line.split("\\s+");
+        try {
+            switch (tokens[0]) {
+                case "new":
+                    return create(tokens);
+                case "move": {
+                    GameSession session = session(tokens, 3);
+                    return reply(session, sessions.play(session.getId(), tokens[2]).get());
+                }
+                case "wait": {
+                    GameSession session = session(tokens, 2);
+                    int move = sessions.requestAIMove(session).get();
+                    return reply(session, move != 0 ? move : session.getLastMove());
+                }
+                case "show": {
+                    GameSession session = session(tokens, 2);
+                    return "ok " + session.getFen() + " " + status(session);
+                }
+                case "close":
+                    return sessions.close(Long.parseLong(argument(tokens, 1))) ? "ok" : "error no such game";
+                case "stats":
+                    return "ok games=" + sessions.size() + " queued=" + sessions.getQueuedSearches()
+                           + " aimoves=" + sessions.getAIMoveCount();
+                default:
+                    return "error unknown command " + tokens[0];
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return "error " + e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "error interrupted";
+        } catch (ExecutionException e) {
+            return "error search failed: " + e.getCause();
+        }
+    }
+
+    private String create(String[] tokens) {
+        boolean aiWhite = false;
+        boolean aiBlack = true;
+        long moveTime = SessionManager.DEFAULT_MOVE_TIME_MS;
+        int depth = SessionManager.DEFAULT_MAX_DEPTH;
+        String fen = null;
+        for (int i = 1; i < tokens.length; i++) {
+            switch (tokens[i]) {
+                case "ai": {
+                    String side = argument(tokens, ++i);
+                    if (!side.equals("white") && !side.equals("black") && !side.equals("both") && !side.equals("none")) {
+                        throw new IllegalArgumentException("unknown side " + side);
+                    }
+                    aiWhite = side.equals("white") || side.equals("both");
+                    aiBlack = side.equals("black") || side.equals("both");
+                    break;
+                }
+                case "movetime": moveTime = Long.parseLong(argument(tokens, ++i)); break;
+                case "depth": depth = Integer.parseInt(argument(tokens, ++i)); break;
+                case "fen":
+                    fen = String.join(" ", java.util.Arrays.copyOfRange(tokens, i + 1, tokens.length));
+                    i = tokens.length;
+                    break;
+                default: throw new IllegalArgumentException("unknown option " + tokens[i]);
+            }
+        }
+        return "ok " + sessions.create(aiWhite, aiBlack, fen, moveTime, depth).getId();
+    }
+
+    private GameSession session(String[] tokens, int length) {
+        argument(tokens, length - 1);
+        return sessions.get(Long.parseLong(tokens[1]));
+    }
+
+    private static String argument(String[] tokens, int index) {
+        if (index >= tokens.length) throw new IllegalArgumentException("missing argument for " + tokens[0]);
+        return tokens[index];
+    }
+
+    private static String reply(GameSession session, int move) {
+        return "ok " + (move == 0 ? "-" : BitboardPosition.moveToString(move)) + " " + status(session);
+    }
+
+    private static String status(GameSession session) {
+        String reason = session.getReason();
+        return session.getStatus().name().toLowerCase() + (reason.isEmpty() ? "" : " " + reason);
+    }
+}
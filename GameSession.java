@@ -0,0 +1,143 @@
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+
+// One game hosted by SessionManager. Only the position, the keys needed for repetition and the AI
+// settings live here, so an idle game costs well under a kilobyte; engines are borrowed from the
+// manager's search pool for each AI move. All access goes through the session's monitor.
+public class GameSession {
+    public enum Status { ACTIVE, WHITE_WINS, BLACK_WINS, DRAW }
+
+    private final long id;
+    private final BitboardPosition position;
+    private final boolean aiPlaysWhite;
+    private final boolean aiPlaysBlack;
+    private final long moveTimeMillis;
+    private final int maxDepth;
+    // Keys of the positions since the last capture or pawn move, for threefold repetition.
+    private long[] history = new long[8];
+    private int historySize;
+    private Status status = Status.ACTIVE;
+    private String reason = "";
+    private int lastMove;
+    // The AI move being searched, or null; at most one per game, which keeps the search queue fair.
+    private CompletableFuture<Integer> pendingSearch;
+
+    GameSession(long id, BitboardPosition position, boolean aiPlaysWhite, boolean aiPlaysBlack,
+                long moveTimeMillis, int maxDepth) {
+        this.id = id;
+        this.position = position;
+        this.aiPlaysWhite = aiPlaysWhite;
+        this.aiPlaysBlack = aiPlaysBlack;
+        this.moveTimeMillis = moveTimeMillis;
+        this.maxDepth = maxDepth;
+        history[historySize++] = position.getKey();
+        updateStatus();
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public synchronized String getFen() {
+        return position.toFen();
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    // Why the game ended, e.g. "checkmate"; empty while it is active.
+    public synchronized String getReason() {
+        return reason;
+    }
+
+    // The last move played by either side, or 0 before the first.
+    public synchronized int getLastMove() {
+        return lastMove;
+    }
+
+    public synchronized boolean isAiToMove() {
+        return status == Status.ACTIVE && (position.isWhiteToMove() ? aiPlaysWhite : aiPlaysBlack);
+    }
+
+    synchronized CompletableFuture<Integer> getPendingSearch() {
+        return pendingSearch;
+    }
+
+    // Plays a move for the human side, given in coordinate notation such as e2e4 or e7e8q.
+    public synchronized void play(String move) {
+        if (status != Status.ACTIVE) throw new IllegalStateException("Game is over: " + reason);
+        if (isAiToMove()) throw new IllegalStateException("It is the AI's turn");
+        int parsed = position.parseMove(move);
+        if (parsed == 0) throw new IllegalArgumentException("Illegal move " + move);
+        apply(parsed);
+    }
+
+    // Keys of the positions before the current one since the last capture or pawn move.
+    synchronized long[] getRepetitionHistory() {
+        return Arrays.copyOf(history, historySize - 1);
+    }
+
+    // Hands out a copy of the position to search, or null when the AI is not to move or is
+    // already searching.
+    synchronized BitboardPosition startSearch(CompletableFuture<Integer> search) {
+        if (!isAiToMove() || pendingSearch != null) return null;
+        pendingSearch = search;
+        return new BitboardPosition(position);
+    }
+
+    synchronized void finishSearch(int move) {
+        pendingSearch = null;
+        if (move != 0 && isAiToMove()) {
+            apply(position.findMove(move));
+        }
+    }
+
+    private void apply(int move) {
+        position.makeMove(move);
+        lastMove = move;
+        if (position.getHalfmoveClock() == 0) historySize = 0;
+        if (historySize == history.length) history = Arrays.copyOf(history, historySize * 2);
+        history[historySize++] = position.getKey();
+        updateStatus();
+    }
+
+    private void updateStatus() {
+        int count = position.generateLegalMoves(new int[BitboardPosition.MAX_MOVES]);
+        if (count == 0) {
+            if (position.isInCheck(position.isWhiteToMove())) {
+                end(position.isWhiteToMove() ? Status.BLACK_WINS : Status.WHITE_WINS, "checkmate");
+            } else {
+                end(Status.DRAW, "stalemate");
+            }
+        } else if (position.getHalfmoveClock() >= 100) {
+            end(Status.DRAW, "fifty-move rule");
+        } else if (repetitions() >= 3) {
+            end(Status.DRAW, "threefold repetition");
+        } else if (position.isInsufficientMaterial()) {
+            end(Status.DRAW, "insufficient material");
+        }
+    }
+
+    private int repetitions() {
+        long key = position.getKey();
+        int count = 0;
+        for (int i = historySize - 1; i >= 0; i -= 2) {
+            if (history[i] == key) count++;
+        }
+        return count;
+    }
+
+    private void end(Status result, String why) {
+        status = result;
+        reason = why;
+    }
+}
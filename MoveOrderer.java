@@ -0,0 +1,108 @@
+import java.util.Arrays;
+
+public class MoveOrderer {
+    private static final int HASH_MOVE_SCORE = 1000000;
+    private static final int CAPTURE_SCORE = 100000;
+    private static final int FIRST_KILLER_SCORE = 90000;
+    private static final int SECOND_KILLER_SCORE = 80000;
+    private static final int HISTORY_LIMIT = 60000;
+
+    // Victim and attacker values by piece type for MVV-LVA.
+    private static final int[] ORDER_VALUE = {1, 3, 3, 5, 9, 20};
+
+    private final int[][] scores;
+    private final int[][] killers;
+    private final int[][] history = new int[12][64];
+
+    public MoveOrderer(int maxPly) {
+        scores = new int[maxPly][BitboardPosition.MAX_MOVES];
+        killers = new int[maxPly][2];
+    }
+
+    public void scoreMoves(BitboardPosition position, int[] moves, int count, int hashMove, int ply) {
+        int[] plyScores = scores[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == hashMove) {
+                plyScores[i] = HASH_MOVE_SCORE;
+            } else if (BitboardPosition.isTactical(move)) {
+                plyScores[i] = CAPTURE_SCORE + captureScore(position, move);
+            } else if (move == killers[ply][0]) {
+                plyScores[i] = FIRST_KILLER_SCORE;
+            } else if (move == killers[ply][1]) {
+                plyScores[i] = SECOND_KILLER_SCORE;
+            } else {
+                int from = BitboardPosition.moveFrom(move);
+                plyScores[i] = history[position.squares[from]][BitboardPosition.moveTo(move)];
+            }
+        }
+    }
+
+    // Selection sort one step at a time: most nodes cut off after the first few moves.
+    public int nextMove(int[] moves, int count, int index, int ply) {
+        int[] plyScores = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (plyScores[i] > plyScores[best]) {
+                best = i;
+            }
+        }
+        int move = moves[best];
+        moves[best] = moves[index];
+        moves[index] = move;
+        int score = plyScores[best];
+        plyScores[best] = plyScores[index];
+        plyScores[index] = score;
+        return move;
+    }
+
+    public void recordCutoff(BitboardPosition position, int move, int depth, int ply) {
+        if (BitboardPosition.isTactical(move)) {
+            return;
+        }
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int piece = position.squares[BitboardPosition.moveFrom(move)];
+        int to = BitboardPosition.moveTo(move);
+        history[piece][to] += depth * depth;
+        if (history[piece][to] > HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    public void ageHistory() {
+        for (int[] row : history) {
+            for (int sq = 0; sq < 64; sq++) {
+                row[sq] >>= 1;
+            }
+        }
+    }
+
+    public void clearHistory() {
+        for (int[] row : history) {
+            Arrays.fill(row, 0);
+        }
+    }
+
+    public void clearKillers() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = 0;
+            plyKillers[1] = 0;
+        }
+    }
+
+    private static int captureScore(BitboardPosition position, int move) {
+        int victim = position.squares[BitboardPosition.moveTo(move)];
+        int attacker = position.squares[BitboardPosition.moveFrom(move)];
+        int victimValue = !BitboardPosition.isCapture(move) ? 0
+                         : victim == BitboardPosition.EMPTY ? ORDER_VALUE[BitboardPosition.PAWN]
+                         : ORDER_VALUE[victim % 6];
+        int promotion = BitboardPosition.movePromotion(move);
+        if (promotion != 0) {
+            victimValue += ORDER_VALUE[promotion];
+        }
+        return victimValue * 100 - ORDER_VALUE[attacker % 6];
+    }
+}
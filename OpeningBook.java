@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Read-only opening book in the Polyglot .bin layout: 16-byte big-endian entries of key, move,
+// weight and learn data, sorted by unsigned key. The keys are this engine's Zobrist keys rather
+// than Polyglot's, so books have to be built with OpeningBookBuilder.
+public class OpeningBook {
+    static final int ENTRY_SIZE = 16;
+    private static final int MAX_ENTRIES_PER_POSITION = 64;
+
+    private final MappedByteBuffer buffer;
+    private final int entries;
+
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        this.entries = buffer.capacity() / ENTRY_SIZE;
+    }
+
+    // The file is mapped rather than read, so the book stays off the heap and is shared by every
+    // game in the process through the page cache.
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new OpeningBook(buffer);
+        }
+    }
+
+    // Returns null when there is no book at the path, so games simply play without one.
+    public static OpeningBook openIfPresent(Path path) {
+        if (!Files.isReadable(path)) return null;
+        try {
+            return open(path);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public int size() {
+        return entries;
+    }
+
+    // Picks one of the book moves for the position with probability proportional to its weight.
+    // Returns the legal move, or 0 when the position is not in the book.
+    public int probe(BitboardPosition position) {
+        int[] moves = new int[MAX_ENTRIES_PER_POSITION];
+        int[] weights = new int[MAX_ENTRIES_PER_POSITION];
+        int count = lookup(position, moves, weights);
+
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += weights[i];
+        }
+        if (total == 0) {
+            return count == 0 ? 0 : moves[0];
+        }
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < count; i++) {
+            pick -= weights[i];
+            if (pick < 0) return moves[i];
+        }
+        return moves[count - 1];
+    }
+
+    // Fills in the legal book moves and their weights for the position, returning how many there are.
+    public int lookup(BitboardPosition position, int[] moves, int[] weights) {
+        long key = position.getKey();
+        int count = 0;
+        for (int i = firstEntry(key); i < entries && buffer.getLong(i * ENTRY_SIZE) == key; i++) {
+            int move = fromBookMove(position, buffer.getShort(i * ENTRY_SIZE + 8) & 0xFFFF);
+            if (move != 0 && count < moves.length) {
+                moves[count] = move;
+                weights[count] = buffer.getShort(i * ENTRY_SIZE + 10) & 0xFFFF;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int firstEntry(long key) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(buffer.getLong(mid * ENTRY_SIZE), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Polyglot moves count squares from a1 and encode castling as the king taking its own rook.
+    static int toBookMove(int move) {
+        int from = BitboardPosition.moveFrom(move);
+        int to = BitboardPosition.moveTo(move);
+        if ((move & BitboardPosition.CASTLE_FLAG) != 0) {
+            to = to > from ? from + 3 : from - 4;
+        }
+        return ((from ^ 56) << 6) | (to ^ 56) | (BitboardPosition.movePromotion(move) << 12);
+    }
+
+    static int fromBookMove(BitboardPosition position, int bookMove) {
+        int from = ((bookMove >> 6) & 63) ^ 56;
+        int to = (bookMove & 63) ^ 56;
+        int promotion = (bookMove >> 12) & 7;
+        if (position.squares[from] % 6 == BitboardPosition.KING && Math.abs((to & 7) - (from & 7)) > 1
+                && (to >> 3) == (from >> 3)) {
+            to = to > from ? from + 2 : from - 2;
+        }
+        return position.findMove(BitboardPosition.encodeMove(from, to, promotion));
+    }
+}
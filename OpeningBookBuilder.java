@@ -0,0 +1,82 @@
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class OpeningBookBuilder {
+    private static final int DEFAULT_MAX_PLY = 16;
+
+    private final Map<Long, Map<Integer, Integer>> counts = new HashMap<>();
+    private final int maxPly;
+
+    public OpeningBookBuilder(int maxPly) {
+        this.maxPly = maxPly;
+    }
+
+    // Usage: OpeningBookBuilder <games.txt> <book.bin> [maxPly]
+    // Each line of the input is one game from the start position in coordinate notation, e.g.
+    // "e2e4 e7e5 g1f3". A move's weight is the number of games that played it in that position.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBookBuilder <games.txt> <book.bin> [maxPly]");
+            System.exit(1);
+        }
+        int maxPly = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_PLY;
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxPly);
+
+        int games = 0;
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                builder.addGame(line.split("\\s+"));
+                games++;
+            }
+        }
+
+        int entries;
+        try (OutputStream out = Files.newOutputStream(Paths.get(args[1]))) {
+            entries = builder.write(out);
+        }
+        System.out.println(games + " games, " + entries + " book entries");
+    }
+
+    // Stops at the first move that is not legal, keeping the moves before it.
+    public void addGame(String[] moves) {
+        BitboardPosition position = BitboardPosition.fromFen(BitboardPosition.START_FEN);
+        for (int ply = 0; ply < moves.length && ply < maxPly; ply++) {
+            int move = position.parseMove(moves[ply]);
+            if (move == 0) return;
+            counts.computeIfAbsent(position.getKey(), k -> new HashMap<>())
+                  .merge(OpeningBook.toBookMove(move), 1, Integer::sum);
+            position.makeMove(move);
+        }
+    }
+
+    public int write(OutputStream out) throws IOException {
+        List<long[]> entries = new ArrayList<>();
+        for (Map.Entry<Long, Map<Integer, Integer>> position : counts.entrySet()) {
+            for (Map.Entry<Integer, Integer> move : position.getValue().entrySet()) {
+                entries.add(new long[] {position.getKey(), move.getKey(), Math.min(move.getValue(), 0xFFFF)});
+            }
+        }
+        entries.sort((a, b) -> a[0] != b[0] ? Long.compareUnsigned(a[0], b[0]) : Long.compare(b[2], a[2]));
+
+        DataOutputStream data = new DataOutputStream(new java.io.BufferedOutputStream(out));
+        for (long[] entry : entries) {
+            data.writeLong(entry[0]);
+            data.writeShort((int) entry[1]);
+            data.writeShort((int) entry[2]);
+            data.writeInt(0);
+        }
+        data.flush();
+        return entries.size();
+    }
+}
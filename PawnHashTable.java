@@ -0,0 +1,55 @@
+public class PawnHashTable {
+    private final long[] keys;
+    private final int[] middlegame;
+    private final int[] endgame;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    public PawnHashTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+        keys = new long[size];
+        middlegame = new int[size];
+        endgame = new int[size];
+        mask = size - 1;
+    }
+
+    // Returns the slot holding this pawn structure's scores, evaluating it on a miss. An empty
+    // slot matches the pawnless key 0 with zero scores, which is also the correct answer.
+    public int lookup(BitboardPosition position) {
+        long key = position.pawnKey;
+        int index = (int) key & mask;
+        probes++;
+        if (keys[index] == key) {
+            hits++;
+            return index;
+        }
+        long whitePawns = position.pieces[BitboardPosition.PAWN];
+        long blackPawns = position.pieces[6 + BitboardPosition.PAWN];
+        keys[index] = key;
+        middlegame[index] = Evaluation.pawnStructure(whitePawns, blackPawns, true);
+        endgame[index] = Evaluation.pawnStructure(whitePawns, blackPawns, false);
+        return index;
+    }
+
+    public int middlegame(int index) {
+        return middlegame[index];
+    }
+
+    public int endgame(int index) {
+        return endgame[index];
+    }
+
+    public long getProbeCount() {
+        return probes;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public void resetCounters() {
+        probes = 0;
+        hits = 0;
+    }
+}
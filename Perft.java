@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class Perft {
+    private static final int HASH_SIZE_MB = 64;
+
+    private final PerftTable table;
+
+    public Perft() {
+        this(HASH_SIZE_MB);
+    }
+
+    public Perft(int hashSizeMegabytes) {
+        table = new PerftTable(hashSizeMegabytes);
+    }
+
+    // Usage: Perft <depth> [fen]
+    // Prints the leaf count below every root move, the total and nodes per second.
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: Perft <depth> [fen]");
+            System.exit(1);
+        }
+        int depth = Integer.parseInt(args[0]);
+        String fen = args.length > 1 ? String.join(" ", java.util.Arrays.copyOfRange(args, 1, args.length))
+                                     : BitboardPosition.START_FEN;
+        BitboardPosition position = BitboardPosition.fromFen(fen);
+
+        long start = System.nanoTime();
+        Map<String, Long> divide = new Perft().divide(position, depth);
+        long elapsed = System.nanoTime() - start;
+
+        long total = 0;
+        for (Map.Entry<String, Long> entry : divide.entrySet()) {
+            System.out.println(entry.getKey() + ": " + entry.getValue());
+            total += entry.getValue();
+        }
+        System.out.println();
+        System.out.println("Nodes: " + total);
+        System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+        System.out.printf("Nodes/s: %.0f%n", total / (elapsed / 1e9));
+    }
+
+    public long perft(BitboardPosition position, int depth) {
+        long total = 0;
+        for (long count : divide(position, depth).values()) {
+            total += count;
+        }
+        return depth == 0 ? 1 : total;
+    }
+
+    // Leaf counts per root move, with the root moves searched in parallel on the fork-join pool.
+    public Map<String, Long> divide(BitboardPosition position, int depth) {
+        Map<String, Long> result = new TreeMap<>();
+        if (depth < 1) {
+            return result;
+        }
+
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+
+        List<RootTask> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BitboardPosition child = new BitboardPosition(position);
+            child.makeMove(moves[i]);
+            RootTask task = new RootTask(child, depth - 1, moves[i]);
+            ForkJoinPool.commonPool().execute(task);
+            tasks.add(task);
+        }
+
+        for (RootTask task : tasks) {
+            result.put(BitboardPosition.moveToString(task.move), task.join());
+        }
+        return result;
+    }
+
+    private long count(BitboardPosition position, int depth, int[][] moveBuffers, BitboardPosition.Undo[] undos) {
+        int[] moves = moveBuffers[depth];
+        int count = position.generateLegalMoves(moves);
+        if (depth == 1) {
+            return count;
+        }
+
+        long key = position.getKey();
+        long cached = table.probe(key, depth);
+        if (cached >= 0) {
+            return cached;
+        }
+
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i], undos[depth]);
+            total += count(position, depth - 1, moveBuffers, undos);
+            position.unmakeMove(moves[i], undos[depth]);
+        }
+        table.store(key, depth, total);
+        return total;
+    }
+
+    private class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final BitboardPosition position;
+        private final int depth;
+        private final int move;
+
+        RootTask(BitboardPosition position, int depth, int move) {
+            this.position = position;
+            this.depth = depth;
+            this.move = move;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth == 0) {
+                return 1L;
+            }
+            int[][] moveBuffers = new int[depth + 1][BitboardPosition.MAX_MOVES];
+            BitboardPosition.Undo[] undos = new BitboardPosition.Undo[depth + 1];
+            for (int i = 0; i <= depth; i++) {
+                undos[i] = new BitboardPosition.Undo();
+            }
+            return count(position, depth, moveBuffers, undos);
+        }
+    }
+
+    // Subtree counts keyed by position hash and depth. Shared by all tasks without locking: the
+    // stored key is XORed with the count, so a torn entry simply fails to match.
+    private static class PerftTable {
+        private final long[] keys;
+        private final long[] counts;
+        private final int mask;
+
+        PerftTable(int sizeInMegabytes) {
+            int entries = Integer.highestOneBit(Math.max(1, sizeInMegabytes) * 1024 * 1024 / 16);
+            keys = new long[entries];
+            counts = new long[entries];
+            mask = entries - 1;
+        }
+
+        long probe(long key, int depth) {
+            long depthKey = key ^ Zobrist.PIECES[0][depth];
+            int index = (int) depthKey & mask;
+            long count = counts[index];
+            return count != 0 && (keys[index] ^ count) == depthKey ? count : -1;
+        }
+
+        void store(long key, int depth, long count) {
+            long depthKey = key ^ Zobrist.PIECES[0][depth];
+            int index = (int) depthKey & mask;
+            keys[index] = depthKey ^ count;
+            counts[index] = count;
+        }
+    }
+}
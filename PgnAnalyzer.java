@@ -0,0 +1,258 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Annotates a PGN collection with an evaluation of every position, searching whole games in
+// parallel. The input is streamed and only a few games per thread are in flight at once, so
+// memory stays bounded however large the file is; results are written in input order.
+public class PgnAnalyzer {
+    private static final long NO_TIME_LIMIT_MS = 24L * 60 * 60 * 1000;
+    private static final int DEFAULT_DEPTH = 6;
+    private static final int DEFAULT_HASH_MB = 16;
+    private static final int GAMES_IN_FLIGHT_PER_THREAD = 4;
+    private static final int LINE_LENGTH = 79;
+    private static final long PROGRESS_INTERVAL_NS = 10_000_000_000L;
+
+    private final int depth;
+    private final long moveTime;
+    private final int threads;
+    private final int hashSizeMegabytes;
+    // Each pool thread keeps its own engine, and so its own transposition table, across games.
+    private final ThreadLocal<Engine> engines = ThreadLocal.withInitial(this::createEngine);
+
+    private long games;
+    private long positions;
+
+    public PgnAnalyzer(int depth, long moveTime, int threads, int hashSizeMegabytes) {
+        this.depth = depth;
+        this.moveTime = moveTime;
+        this.threads = threads;
+        this.hashSizeMegabytes = hashSizeMegabytes;
+    }
+
+    // Usage: PgnAnalyzer <games.pgn> <annotated.pgn> [-depth N] [-movetime MS] [-threads N] [-hash MB]
+    // Each move is followed by a comment with the evaluation of the position it reaches, from
+    // white's point of view, the depth searched and the engine's choice there, e.g. {+0.35/6 Nf6}.
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Usage: PgnAnalyzer <games.pgn> <annotated.pgn> [-depth N] [-movetime MS] [-threads N] [-hash MB]");
+            System.exit(1);
+        }
+        int depth = DEFAULT_DEPTH;
+        long moveTime = NO_TIME_LIMIT_MS;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int hash = DEFAULT_HASH_MB;
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "-depth": depth = Integer.parseInt(args[i + 1]); break;
+                case "-movetime": moveTime = Long.parseLong(args[i + 1]); break;
+                case "-threads": threads = Math.max(1, Integer.parseInt(args[i + 1])); break;
+                case "-hash": hash = Math.max(1, Integer.parseInt(args[i + 1])); break;
+                default: throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        PgnAnalyzer analyzer = new PgnAnalyzer(depth, moveTime, threads, hash);
+        try (BufferedReader in = Files.newBufferedReader(Paths.get(args[0]));
+             BufferedWriter out = Files.newBufferedWriter(Paths.get(args[1]))) {
+            analyzer.run(new PgnReader(in), out);
+        }
+    }
+
+    public void run(PgnReader reader, Writer out) throws IOException, InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "PGN analysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Future<Annotated>> pending = new ArrayDeque<>();
+        int window = threads * GAMES_IN_FLIGHT_PER_THREAD;
+        long start = System.nanoTime();
+        long lastReport = start;
+        try {
+            PgnReader.Game game;
+            while ((game = reader.next()) != null) {
+                PgnReader.Game submitted = game;
+                pending.add(pool.submit(() -> annotate(submitted)));
+                // The oldest game is written before another is read, which bounds what is held in memory.
+                while (pending.size() >= window || (!pending.isEmpty() && pending.peek().isDone())) {
+                    write(pending.poll(), out);
+                }
+                if (System.nanoTime() - lastReport >= PROGRESS_INTERVAL_NS) {
+                    lastReport = System.nanoTime();
+                    report(start);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), out);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        report(start);
+    }
+
+    private void write(Future<Annotated> result, Writer out) throws IOException, InterruptedException {
+        Annotated annotated;
+        try {
+            annotated = result.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Analysis failed", e.getCause());
+        }
+        out.write(annotated.text);
+        games++;
+        positions += annotated.positions;
+    }
+
+    private void report(long start) {
+        double seconds = Math.max(1e-9, (System.nanoTime() - start) / 1e9);
+        System.err.printf("%d games, %d positions, %.1f positions/s%n", games, positions, positions / seconds);
+    }
+
+    private Engine createEngine() {
+        Engine engine = new Engine(new ChessAI(new TranspositionTable(hashSizeMegabytes)));
+        engine.ai.setMaxDepth(depth);
+        engine.ai.setSearchListener(engine);
+        return engine;
+    }
+
+    // Replays the game under the engine's move rules, stopping at the first move that is illegal.
+    private Annotated annotate(PgnReader.Game game) {
+        Engine engine = engines.get();
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, String> tag : game.tags.entrySet()) {
+            text.append('[').append(tag.getKey()).append(" \"")
+                .append(tag.getValue().replace("\"", "\\\"")).append("\"]\n");
+        }
+        text.append('\n');
+
+        LineWrapper moves = new LineWrapper(text);
+        int positions = 0;
+        BitboardPosition position;
+        String fen = game.tags.get("FEN");
+        try {
+            position = BitboardPosition.fromFen(fen != null ? fen : BitboardPosition.START_FEN);
+        } catch (IllegalArgumentException e) {
+            moves.add("{" + e.getMessage() + "}");
+            moves.add(game.result);
+            return new Annotated(moves.finish(), 0);
+        }
+
+        // A FEN may start at any move number; PGN numbers moves from there.
+        int moveNumber = fen != null ? fullMoveNumber(fen) : 1;
+        boolean first = true;
+        for (String san : game.moves) {
+            int move = position.parseSan(san);
+            if (move == 0) {
+                moves.add("{illegal move " + san + "}");
+                break;
+            }
+            if (position.isWhiteToMove()) {
+                moves.add(moveNumber + ".");
+            } else if (first) {
+                moves.add(moveNumber + "...");
+            }
+            moves.add(position.toSan(move));
+            if (!position.isWhiteToMove()) moveNumber++;
+            first = false;
+
+            position.makeMove(move);
+            String evaluation = engine.evaluate(position, moveTime);
+            if (evaluation != null) {
+                moves.add("{" + evaluation + "}");
+                positions++;
+            }
+        }
+        moves.add(game.result);
+        return new Annotated(moves.finish(), positions);
+    }
+
+    private static int fullMoveNumber(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        try {
+            return fields.length > 5 ? Math.max(1, Integer.parseInt(fields[5])) : 1;
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    private static final class Annotated {
+        final String text;
+        final int positions;
+
+        Annotated(String text, int positions) {
+            this.text = text;
+            this.positions = positions;
+        }
+    }
+
+    private static final class Engine implements ChessAI.SearchListener {
+        final ChessAI ai;
+        int depth;
+        int score;
+        int bestMove;
+
+        Engine(ChessAI ai) {
+            this.ai = ai;
+        }
+
+        @Override
+        public void iterationCompleted(int depth, int score, int[] principalVariation) {
+            this.depth = depth;
+            this.score = score;
+            this.bestMove = principalVariation[0];
+        }
+
+        // "+0.35/6 Nf6", or null when the game is over in this position.
+        String evaluate(BitboardPosition position, long moveTime) {
+            depth = 0;
+            ChessAI.Move best = ai.getBestMove(position, moveTime);
+            if (best == null || depth == 0) return null;
+            int white = position.isWhiteToMove() ? score : -score;
+            String value;
+            if (Math.abs(white) > ChessAI.MATE_BOUND) {
+                int moves = (ChessAI.MATE_SCORE - Math.abs(white) + 1) / 2;
+                value = white > 0 ? "#" + moves : "#-" + moves;
+            } else {
+                value = String.format("%+.2f", white / 100.0);
+            }
+            return value + "/" + depth + " " + position.toSan(bestMove);
+        }
+    }
+
+    // Lays out movetext in lines of at most LINE_LENGTH characters, as PGN export format asks.
+    private static final class LineWrapper {
+        private final StringBuilder text;
+        private int lineLength;
+
+        LineWrapper(StringBuilder text) {
+            this.text = text;
+        }
+
+        void add(String token) {
+            if (lineLength > 0 && lineLength + 1 + token.length() > LINE_LENGTH) {
+                text.append('\n');
+                lineLength = 0;
+            }
+            if (lineLength > 0) {
+                text.append(' ');
+                lineLength++;
+            }
+            text.append(token);
+            lineLength += token.length();
+        }
+
+        String finish() {
+            return text.append("\n\n").toString();
+        }
+    }
+}
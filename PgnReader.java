@@ -0,0 +1,98 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Reads PGN one game at a time, so files of any size stream through in constant memory.
+// Comments, variations and NAGs are skipped; only the tags, the main line and the result are kept.
+public class PgnReader {
+    private final BufferedReader in;
+    // A tag line that ended a game without a result, held back for the next game.
+    private String pendingLine;
+
+    public PgnReader(BufferedReader in) {
+        this.in = in;
+    }
+
+    public static final class Game {
+        public final Map<String, String> tags = new LinkedHashMap<>();
+        public final List<String> moves = new ArrayList<>();
+        public String result = "*";
+    }
+
+    // Returns the next game, or null at the end of the input.
+    public Game next() throws IOException {
+        Game game = new Game();
+        boolean inMoves = false;
+        boolean inComment = false;
+        int variationDepth = 0;
+        StringBuilder token = new StringBuilder();
+        String line;
+        while ((line = pendingLine != null ? pendingLine : in.readLine()) != null) {
+            pendingLine = null;
+            if (line.startsWith("%")) continue;
+            if (!inComment && variationDepth == 0 && line.startsWith("[")) {
+                if (inMoves) {
+                    pendingLine = line;
+                    return game;
+                }
+                addTag(game, line);
+                continue;
+            }
+
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (inComment) {
+                    inComment = c != '}';
+                    continue;
+                }
+                if (c == '{' || c == ';' || c == '(' || c == ')' || Character.isWhitespace(c)) {
+                    if (addToken(game, token, variationDepth)) return game;
+                    if (c == '{') inComment = true;
+                    else if (c == ';') break;
+                    else if (c == '(') variationDepth++;
+                    else if (c == ')') variationDepth = Math.max(0, variationDepth - 1);
+                    continue;
+                }
+                token.append(c);
+                inMoves = true;
+            }
+            if (addToken(game, token, variationDepth)) return game;
+        }
+        return inMoves || !game.tags.isEmpty() ? game : null;
+    }
+
+    private static void addTag(Game game, String line) {
+        int space = line.indexOf(' ');
+        int open = line.indexOf('"');
+        int close = line.lastIndexOf('"');
+        if (space < 0 || open < 0 || close <= open) return;
+        game.tags.put(line.substring(1, space), line.substring(open + 1, close).replace("\\\"", "\""));
+    }
+
+    // Returns true when the token is the game's result.
+    private static boolean addToken(Game game, StringBuilder token, int variationDepth) {
+        if (token.length() == 0) return false;
+        String text = token.toString();
+        token.setLength(0);
+        if (variationDepth > 0) return false;
+
+        if (text.equals("1-0") || text.equals("0-1") || text.equals("1/2-1/2") || text.equals("*")) {
+            game.result = text;
+            return true;
+        }
+        // Move numbers may be written "12.", "12..." or run into the move as "12.e4".
+        int start = 0;
+        while (start < text.length() && Character.isDigit(text.charAt(start))) start++;
+        if (start < text.length() && text.charAt(start) == '.') {
+            while (start < text.length() && text.charAt(start) == '.') start++;
+            text = text.substring(start);
+        }
+        if (!text.isEmpty() && text.charAt(0) != '$') {
+            game.moves.add(text);
+        }
+        return false;
+    }
+}
@@ -1,13 +1,16 @@
 public class Pieces {
+    // Pieces carry no per-square state, so one shared instance per type and colour is enough.
+    private static final ChessPiece[] WHITE_PIECES = {
+        new Pawn(true), new Knight(true), new Bishop(true), new Rook(true), new Queen(true), new King(true)
+    };
+    private static final ChessPiece[] BLACK_PIECES = {
+        new Pawn(false), new Knight(false), new Bishop(false), new Rook(false), new Queen(false), new King(false)
+    };
+
     public static ChessPiece createPiece(PieceType type, boolean white) {
-        switch (type) {
-            case PAWN: return new Pawn(white);
-            case KNIGHT: return new Knight(white);
-            case BISHOP: return new Bishop(white);
-            case ROOK: return new Rook(white);
-            case QUEEN: return new Queen(white);
-            case KING: return new King(white);
-            default: throw new IllegalArgumentException("Unknown piece type: " + type);
+        if (type == null) {
+            throw new IllegalArgumentException("Unknown piece type: " + type);
         }
+        return white ? WHITE_PIECES[type.ordinal()] : BLACK_PIECES[type.ordinal()];
     }
 }
\ No newline at end of file
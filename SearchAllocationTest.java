@@ -0,0 +1,53 @@
+import java.lang.management.ManagementFactory;
+
+// Fails (exit status 1) if a single-threaded search allocates in proportion to the nodes it
+// visits. Buffers, undo records and tables are all made up front, so a search may allocate a
+// small fixed amount for its result and nothing per node; even one small object per node is
+// several bytes per node, far over the limit.
+//
+// Usage: java SearchAllocationTest [depth]
+public class SearchAllocationTest {
+    private static final int DEFAULT_DEPTH = 6;
+    private static final long ALLOWED_BYTES_PER_SEARCH = 16 * 1024;
+    private static final double ALLOWED_BYTES_PER_NODE = 0.1;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DEPTH;
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("SKIPPED: allocation counting is not supported by this JVM");
+            return;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+        long threadId = Thread.currentThread().getId();
+
+        int failures = 0;
+        for (String fen : SearchBenchmark.POSITIONS) {
+            BitboardPosition position = BitboardPosition.fromFen(fen);
+            // The first search runs mostly interpreted, where allocations the JIT would eliminate
+            // still happen, so only the second one is measured.
+            ChessAI warmup = new ChessAI(new TranspositionTable(16));
+            warmup.setMaxDepth(depth);
+            warmup.getBestMove(new BitboardPosition(position), SearchBenchmark.NO_TIME_LIMIT_MS);
+
+            ChessAI ai = new ChessAI(new TranspositionTable(16));
+            ai.setMaxDepth(depth);
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            ai.getBestMove(position, SearchBenchmark.NO_TIME_LIMIT_MS);
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            long nodes = ai.getNodeCount();
+            long limit = ALLOWED_BYTES_PER_SEARCH + (long) (ALLOWED_BYTES_PER_NODE * nodes);
+            boolean passed = allocated <= limit;
+            if (!passed) failures++;
+            System.out.printf("%-4s %10d nodes %10d bytes (limit %d)  %s%n", passed ? "ok" : "FAIL",
+                              nodes, allocated, limit, fen);
+        }
+
+        if (failures > 0) {
+            System.out.println(failures + " of " + SearchBenchmark.POSITIONS.length + " searches allocated per node");
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+}
@@ -0,0 +1,73 @@
+import java.lang.management.ManagementFactory;
+
+public class SearchBenchmark {
+    static final String[] POSITIONS = {
+        BitboardPosition.START_FEN,
+        "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+        "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+        "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+    };
+    static final long NO_TIME_LIMIT_MS = 24L * 60 * 60 * 1000;
+
+    // Usage: SearchBenchmark [depth] [maxThreads]
+    // Prints time-to-depth over the benchmark positions for 1, 2, 4, ... threads, then the heap
+    // allocated by a single-threaded search, which should not grow with the number of nodes, and
+    // its pawn hash hit rate.
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.printf("%-8s %12s %10s %14s%n", "threads", "time (ms)", "speedup", "nodes/s");
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long elapsed = 0;
+            long nodes = 0;
+            for (String fen : POSITIONS) {
+                BitboardPosition position = BitboardPosition.fromFen(fen);
+                ChessAI ai = new ChessAI(new TranspositionTable(64));
+                ai.setThreadCount(threads);
+                ai.setMaxDepth(depth);
+
+                long start = System.nanoTime();
+                ai.getBestMove(position, NO_TIME_LIMIT_MS);
+                elapsed += System.nanoTime() - start;
+                nodes += ai.getNodeCount();
+                ai.setThreadCount(1);
+            }
+
+            double millis = elapsed / 1e6;
+            if (threads == 1) baseline = millis;
+            System.out.printf("%-8d %12.0f %10.2f %14.0f%n", threads, millis, baseline / millis, nodes / (elapsed / 1e9));
+        }
+
+        reportAllocation(depth);
+    }
+
+    private static void reportAllocation(int depth) {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("Allocation counting is not supported by this JVM");
+            return;
+        }
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        System.out.println();
+        System.out.printf("%-8s %12s %14s %10s %10s%n", "position", "nodes", "bytes", "bytes/node", "pawn hits");
+        for (int i = 0; i < POSITIONS.length; i++) {
+            BitboardPosition position = BitboardPosition.fromFen(POSITIONS[i]);
+            ChessAI warmup = new ChessAI(new TranspositionTable(16));
+            warmup.setMaxDepth(depth);
+            warmup.getBestMove(position, NO_TIME_LIMIT_MS);
+
+            ChessAI ai = new ChessAI(new TranspositionTable(16));
+            ai.setMaxDepth(depth);
+            long before = threadBean.getThreadAllocatedBytes(threadId);
+            ai.getBestMove(position, NO_TIME_LIMIT_MS);
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+            System.out.printf("%-8d %12d %14d %10.4f %9.1f%%%n", i + 1, ai.getNodeCount(), allocated,
+                              (double) allocated / ai.getNodeCount(), ai.getPawnHashHitRate() * 100);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Collects the statistics of every finished search for JMX and logs one line per search. Only
+// used when SearchStatistics.ENABLED is set; the MBean is registered on the first search.
+public final class SearchMonitor implements SearchMonitorMXBean {
+    public static final String OBJECT_NAME = "chess:type=SearchMonitor";
+    private static final Logger LOG = Logger.getLogger("chess.search");
+    private static final SearchMonitor INSTANCE = new SearchMonitor();
+    private static boolean registered;
+
+    private long searches;
+    private long nodes;
+    private long quiescenceNodes;
+    private long elapsedNanos;
+    private long betaCutoffs;
+    private long firstMoveCutoffs;
+    private long hashProbes;
+    private long hashHits;
+    private SearchStatistics last;
+
+    private SearchMonitor() {
+    }
+
+    public static SearchMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    static void record(SearchStatistics statistics) {
+        register();
+        INSTANCE.add(statistics);
+        LOG.info(statistics.toLogLine());
+    }
+
+    private static synchronized void register() {
+        if (registered) return;
+        registered = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            LOG.warning("Could not register " + OBJECT_NAME + ": " + e);
+        }
+    }
+
+    private synchronized void add(SearchStatistics statistics) {
+        searches++;
+        nodes += statistics.getNodes();
+        quiescenceNodes += statistics.getQuiescenceNodes();
+        elapsedNanos += statistics.getElapsedNanos();
+        betaCutoffs += statistics.getBetaCutoffs();
+        firstMoveCutoffs += statistics.getFirstMoveCutoffs();
+        hashProbes += statistics.getHashProbes();
+        hashHits += statistics.getHashHits();
+        last = statistics;
+    }
+
+    @Override
+    public synchronized long getSearches() {
+        return searches;
+    }
+
+    @Override
+    public synchronized long getTotalNodes() {
+        return nodes;
+    }
+
+    @Override
+    public synchronized long getTotalQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    @Override
+    public synchronized long getTotalSearchMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    @Override
+    public synchronized long getAverageNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+
+    @Override
+    public synchronized double getFirstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    @Override
+    public synchronized double getHashHitRate() {
+        return hashProbes == 0 ? 0 : (double) hashHits / hashProbes;
+    }
+
+    @Override
+    public synchronized int getLastDepth() {
+        return last == null ? 0 : last.getDepth();
+    }
+
+    @Override
+    public synchronized long getLastNodes() {
+        return last == null ? 0 : last.getNodes();
+    }
+
+    @Override
+    public synchronized long getLastNodesPerSecond() {
+        return last == null ? 0 : last.getNodesPerSecond();
+    }
+
+    @Override
+    public synchronized long getLastSearchMillis() {
+        return last == null ? 0 : last.getElapsedNanos() / 1000000;
+    }
+
+    @Override
+    public synchronized double getLastBranchingFactor() {
+        return last == null ? 0 : last.getBranchingFactor();
+    }
+}
@@ -0,0 +1,27 @@
+// Engine throughput as seen over JMX, under the name SearchMonitor.OBJECT_NAME. Totals cover every
+// search since start-up; the "last" attributes describe the most recent one.
+public interface SearchMonitorMXBean {
+    long getSearches();
+
+    long getTotalNodes();
+
+    long getTotalQuiescenceNodes();
+
+    long getTotalSearchMillis();
+
+    long getAverageNodesPerSecond();
+
+    double getFirstMoveCutoffRate();
+
+    double getHashHitRate();
+
+    int getLastDepth();
+
+    long getLastNodes();
+
+    long getLastNodesPerSecond();
+
+    long getLastSearchMillis();
+
+    double getLastBranchingFactor();
+}
@@ -0,0 +1,93 @@
+// Counters from one search. Each thread counts into plain fields of its own SearchWorker and
+// ChessAI sums them once the search has finished, so nothing is shared while searching.
+public final class SearchStatistics {
+    // Read once at class load, so when it is off the JIT removes the extra counting from the search
+    // and no reports are produced. Enable with -Dchess.searchStatistics=true.
+    public static final boolean ENABLED = Boolean.getBoolean("chess.searchStatistics");
+
+    private final int depth;
+    private final int threads;
+    private final long elapsedNanos;
+    private final long nodes;
+    private final long quiescenceNodes;
+    private final long betaCutoffs;
+    private final long firstMoveCutoffs;
+    private final long hashProbes;
+    private final long hashHits;
+
+    public SearchStatistics(int depth, int threads, long elapsedNanos, long nodes, long quiescenceNodes,
+                            long betaCutoffs, long firstMoveCutoffs, long hashProbes, long hashHits) {
+        this.depth = depth;
+        this.threads = threads;
+        this.elapsedNanos = elapsedNanos;
+        this.nodes = nodes;
+        this.quiescenceNodes = quiescenceNodes;
+        this.betaCutoffs = betaCutoffs;
+        this.firstMoveCutoffs = firstMoveCutoffs;
+        this.hashProbes = hashProbes;
+        this.hashHits = hashHits;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    public long getBetaCutoffs() {
+        return betaCutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    // Only counted while ENABLED.
+    public long getHashProbes() {
+        return hashProbes;
+    }
+
+    public long getHashHits() {
+        return hashHits;
+    }
+
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1000000000L / elapsedNanos;
+    }
+
+    public double getFirstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+
+    public double getHashHitRate() {
+        return hashProbes == 0 ? 0 : (double) hashHits / hashProbes;
+    }
+
+    // Effective branching factor: the number of nodes is roughly this to the power of the depth.
+    public double getBranchingFactor() {
+        return depth == 0 || nodes == 0 ? 0 : Math.pow(nodes, 1.0 / depth);
+    }
+
+    // One line of key=value pairs, for log processors.
+    public String toLogLine() {
+        return String.format(java.util.Locale.ROOT,
+                "search depth=%d threads=%d time_ms=%d nodes=%d qnodes=%d nps=%d ebf=%.2f "
+                + "cutoffs=%d first_move_cutoff_rate=%.3f tt_probes=%d tt_hits=%d tt_hit_rate=%.3f",
+                depth, threads, elapsedNanos / 1000000, nodes, quiescenceNodes, getNodesPerSecond(), getBranchingFactor(),
+                betaCutoffs, getFirstMoveCutoffRate(), hashProbes, hashHits, getHashHitRate());
+    }
+}
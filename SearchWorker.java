@@ -0,0 +1,579 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SearchWorker {
+    private static final int DELTA_MARGIN = 200;
+    private static final int PAWN_HASH_ENTRIES = 1 << 14;
+    // Known results from the bitbases rank below any mate the search finds but above any evaluation.
+    private static final int BITBASE_WIN = 50000;
+    // Null-move pruning searches the position after passing at depth - 1 - NULL_MOVE_REDUCTION, one
+    // ply less again at depth 7 and above.
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    private static final int NULL_MOVE_REDUCTION = 2;
+    // Quiet moves from the LMR_MIN_MOVE-th on are searched one ply shallower, two plies from
+    // LMR_DEEP_MOVE on at depth 6 and above; a reduced move that beats alpha is searched again.
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_MIN_MOVE = 3;
+    private static final int LMR_DEEP_MOVE = 6;
+    // From this depth each iteration first searches a window of ASPIRATION_WINDOW around the last
+    // score, doubling it on the side that fails; past ASPIRATION_MAX that side is opened fully.
+    private static final int ASPIRATION_MIN_DEPTH = 4;
+    private static final int ASPIRATION_WINDOW = 30;
+    private static final int ASPIRATION_MAX = 500;
+    private static final int[] CAPTURE_VALUE = {
+        Evaluation.PAWN_VALUE, Evaluation.KNIGHT_VALUE, Evaluation.BISHOP_VALUE, Evaluation.ROOK_VALUE, Evaluation.QUEEN_VALUE, 0
+    };
+    
+    private final int id;
+    private final TranspositionTable transpositionTable;
+    private final AtomicBoolean stop;
+    // Shared with the other workers and owned by ChessAI, which may move it while a pondering
+    // search runs; measured on System.nanoTime().
+    private final AtomicLong deadline;
+    private final MoveOrderer moveOrderer = new MoveOrderer(ChessAI.MAX_PLY);
+    // Per worker so the hot path needs no synchronisation; pawn structures repeat so often that
+    // a small table is enough and it is kept between searches.
+    private final PawnHashTable pawnTable = new PawnHashTable(PAWN_HASH_ENTRIES);
+    private Bitbases bitbases;
+    private int rootSignature;
+    private ChessAI.SearchListener listener;
+    private long nodeLimit = Long.MAX_VALUE;
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private final BitboardPosition.Undo[] undoStack = new BitboardPosition.Undo[ChessAI.MAX_PLY];
+    private final int[][] moveStack = new int[ChessAI.MAX_PLY][BitboardPosition.MAX_MOVES];
+    // Triangular table: row ply holds the best line found from ply onwards, up to pvLength[ply].
+    private final int[][] pvTable = new int[ChessAI.MAX_PLY + 1][ChessAI.MAX_PLY + 1];
+    private final int[] pvLength = new int[ChessAI.MAX_PLY + 1];
+    private int[] principalVariation = new int[0];
+    // Keys of the game's positions before the root, oldest first, then of each node on the line
+    // being searched: the node at ply p is at rootIndex + p.
+    private long[] keyHistory = new long[ChessAI.MAX_PLY + 1];
+    private int rootIndex;
+    // Repetitions are only looked for after the last null move on the current line.
+    private int repetitionFloor;
+    
+    private boolean stopped;
+    private long nodes;
+    private long quiescenceNodes;
+    private long betaCutoffs;
+    private long firstMoveCutoffs;
+    private long hashProbes;
+    private long hashHits;
+    private int completedDepth;
+    private int bestMove;
+    private int bestScore;
+    
+    public SearchWorker(int id, TranspositionTable transpositionTable, AtomicBoolean stop, AtomicLong deadline) {
+        this.id = id;
+        this.transpositionTable = transpositionTable;
+        this.stop = stop;
+        this.deadline = deadline;
+        for (int i = 0; i < ChessAI.MAX_PLY; i++) {
+            undoStack[i] = new BitboardPosition.Undo();
+        }
+    }
+    
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+    
+    public void setListener(ChessAI.SearchListener listener) {
+        this.listener = listener;
+    }
+    
+    public void setNullMovePruning(boolean nullMovePruning) {
+        this.nullMovePruning = nullMovePruning;
+    }
+    
+    public void setLateMoveReductions(boolean lateMoveReductions) {
+        this.lateMoveReductions = lateMoveReductions;
+    }
+    
+    public void setNodeLimit(long nodeLimit) {
+        this.nodeLimit = nodeLimit;
+    }
+    
+    // Forgets the move ordering learnt from earlier searches; the next one starts as if it were the first.
+    public void clearHistory() {
+        moveOrderer.clearHistory();
+        moveOrderer.clearKillers();
+    }
+    
+    // The positions played before the next root, oldest first, for repetition detection.
+    public void setGameHistory(long[] keys, int count) {
+        if (keyHistory.length < count + ChessAI.MAX_PLY + 1) {
+            keyHistory = new long[count + ChessAI.MAX_PLY + 1];
+        }
+        System.arraycopy(keys, 0, keyHistory, 0, count);
+        rootIndex = count;
+    }
+    
+    public int getBestMove() {
+        return bestMove;
+    }
+    
+    // The expected line from the last completed iteration, starting with the best move.
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+    
+    public int getBestScore() {
+        return bestScore;
+    }
+    
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+    
+    public long getNodeCount() {
+        return nodes;
+    }
+    
+    public long getQuiescenceNodeCount() {
+        return quiescenceNodes;
+    }
+    
+    public long getBetaCutoffCount() {
+        return betaCutoffs;
+    }
+    
+    public long getFirstMoveCutoffCount() {
+        return firstMoveCutoffs;
+    }
+    
+    public long getHashProbeCount() {
+        return hashProbes;
+    }
+    
+    public long getHashHitCount() {
+        return hashHits;
+    }
+    
+    public long getPawnHashProbeCount() {
+        return pawnTable.getProbeCount();
+    }
+    
+    public long getPawnHashHitCount() {
+        return pawnTable.getHitCount();
+    }
+    
+    public void search(BitboardPosition position, int maxDepth) {
+        this.stopped = false;
+        this.nodes = 0;
+        this.quiescenceNodes = 0;
+        this.completedDepth = 0;
+        this.betaCutoffs = 0;
+        this.firstMoveCutoffs = 0;
+        this.hashProbes = 0;
+        this.hashHits = 0;
+        this.bestMove = 0;
+        this.bestScore = 0;
+        this.principalVariation = new int[0];
+        this.keyHistory[rootIndex] = position.getKey();
+        this.repetitionFloor = 0;
+        pawnTable.resetCounters();
+        moveOrderer.clearKillers();
+        moveOrderer.ageHistory();
+        
+        int[] rootMoves = new int[BitboardPosition.MAX_MOVES];
+        int count = position.generateLegalMoves(rootMoves);
+        
+        if (count == 0) return;
+        
+        // Inside a bitbase ending every move keeps the same result, so the root only drops the
+        // moves that throw it away and the search is left to make progress; probes start once
+        // the material changes.
+        rootSignature = -1;
+        if (bitbases != null && bitbases.probe(position) != Bitbases.UNKNOWN) {
+            rootSignature = Bitbases.signature(position);
+            count = keepBestBitbaseMoves(position, rootMoves, count);
+        }
+        
+        int hashMove = TranspositionTable.move(transpositionTable.probe(position.getKey()));
+        for (int i = 1; i < count && hashMove != 0; i++) {
+            if (rootMoves[i] == hashMove) {
+                rootMoves[i] = rootMoves[0];
+                rootMoves[0] = hashMove;
+                break;
+            }
+        }
+        
+        // Helpers rotate the moves after the first so that threads spread over different subtrees.
+        if (id > 0 && count > 2) {
+            int shift = id % (count - 1);
+            for (int s = 0; s < shift; s++) {
+                int first = rootMoves[1];
+                System.arraycopy(rootMoves, 2, rootMoves, 1, count - 2);
+                rootMoves[count - 1] = first;
+            }
+        }
+        
+        bestMove = rootMoves[0];
+        
+        // Odd helpers start one ply deeper so the threads are not all on the same iteration.
+        for (int depth = 1 + (id & 1); depth <= maxDepth; depth++) {
+            int alpha = -ChessAI.INFINITY;
+            int beta = ChessAI.INFINITY;
+            int delta = ASPIRATION_WINDOW;
+            if (depth >= ASPIRATION_MIN_DEPTH && Math.abs(bestScore) < ChessAI.MATE_BOUND) {
+                alpha = bestScore - delta;
+                beta = bestScore + delta;
+            }
+            int bestValue;
+            while (true) {
+                bestValue = alphaBetaRoot(position, rootMoves, count, depth, alpha, beta);
+                if (stopped) break;
+                delta *= 2;
+                if (bestValue <= alpha && alpha > -ChessAI.INFINITY) {
+                    alpha = delta > ASPIRATION_MAX ? -ChessAI.INFINITY : Math.max(-ChessAI.INFINITY, bestValue - delta);
+                } else if (bestValue >= beta && beta < ChessAI.INFINITY) {
+                    beta = delta > ASPIRATION_MAX ? ChessAI.INFINITY : Math.min(ChessAI.INFINITY, bestValue + delta);
+                } else {
+                    break;
+                }
+            }
+            if (stopped) break;
+            
+            bestMove = rootMoves[0];
+            bestScore = bestValue;
+            completedDepth = depth;
+            principalVariation = Arrays.copyOf(pvTable[0], pvLength[0]);
+            if (listener != null) {
+                listener.iterationCompleted(depth, bestValue, principalVariation.clone());
+            }
+            
+            if (count == 1 || Math.abs(bestValue) > ChessAI.MATE_BOUND) break;
+        }
+    }
+    
+    private int keepBestBitbaseMoves(BitboardPosition position, int[] moves, int count) {
+        int[] results = new int[count];
+        int best = Bitbases.WIN;
+        BitboardPosition.Undo undo = undoStack[0];
+        for (int i = 0; i < count; i++) {
+            position.makeMove(moves[i], undo);
+            int result = bitbases.probe(position);
+            position.unmakeMove(moves[i], undo);
+            // A double push that allows en passant has no entry; treat it as the worst case.
+            results[i] = result == Bitbases.UNKNOWN ? Bitbases.WIN : result;
+            if (results[i] == Bitbases.LOSS || (results[i] == Bitbases.DRAW && best == Bitbases.WIN)) {
+                best = results[i];
+            }
+        }
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (results[i] == best) moves[kept++] = moves[i];
+        }
+        return kept;
+    }
+    
+    // Principal variation search over the root moves: the first gets the full window, the rest a
+    // null window that is widened only when one of them beats the best so far. A new best move
+    // goes to the front, which orders the next iteration.
+    private int alphaBetaRoot(BitboardPosition position, int[] moves, int count, int depth, int alpha, int beta) {
+        BitboardPosition.Undo undo = undoStack[0];
+        int originalAlpha = alpha;
+        int bestValue = -ChessAI.INFINITY;
+        pvLength[0] = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            position.makeMove(move, undo);
+            int score;
+            if (i == 0) {
+                score = -alphaBeta(position, depth - 1, -beta, -alpha, 1, true);
+            } else {
+                score = -alphaBeta(position, depth - 1, -alpha - 1, -alpha, 1, true);
+                if (score > alpha && score < beta && !stopped) {
+                    score = -alphaBeta(position, depth - 1, -beta, -alpha, 1, true);
+                }
+            }
+            position.unmakeMove(move, undo);
+            
+            if (stopped) return 0;
+            
+            bestValue = Math.max(bestValue, score);
+            if (i == 0 || score > alpha) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                updatePrincipalVariation(0, move);
+            }
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) break;
+            }
+        }
+        
+        int bound = bestValue >= beta ? TranspositionTable.LOWER_BOUND
+                  : bestValue > originalAlpha ? TranspositionTable.EXACT
+                  : TranspositionTable.UPPER_BOUND;
+        transpositionTable.store(position.getKey(), moves[0], depth, bound, toTableScore(bestValue, 0));
+        return bestValue;
+    }
+    
+    private void updatePrincipalVariation(int ply, int move) {
+        pvTable[ply][ply] = move;
+        int length = Math.max(pvLength[ply + 1], ply + 1);
+        System.arraycopy(pvTable[ply + 1], ply + 1, pvTable[ply], ply + 1, length - ply - 1);
+        pvLength[ply] = length;
+    }
+    
+    private int alphaBeta(BitboardPosition position, int depth, int alpha, int beta, int ply, boolean allowNullMove) {
+        pvLength[ply] = ply;
+        if ((++nodes & 2047) == 0 && (stop.get() || System.nanoTime() >= deadline.get() || nodes >= nodeLimit)) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        
+        keyHistory[rootIndex + ply] = position.getKey();
+        if (isDraw(position, ply)) {
+            return 0;
+        }
+        
+        if (bitbases != null && Long.bitCount(position.allPieces) <= Bitbases.MAX_PIECES
+                && Bitbases.signature(position) != rootSignature) {
+            int result = bitbases.probe(position);
+            if (result != Bitbases.UNKNOWN) {
+                return bitbaseScore(position, result, ply);
+            }
+        }
+        
+        if (depth == 0 || ply >= ChessAI.MAX_PLY - 1) {
+            return quiescence(position, alpha, beta, ply);
+        }
+        
+        long key = position.getKey();
+        long entry = transpositionTable.probe(key);
+        if (SearchStatistics.ENABLED) {
+            hashProbes++;
+            if (entry != 0) hashHits++;
+        }
+        int hashMove = 0;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int score = fromTableScore(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                        || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                    return score;
+                }
+            }
+        }
+        
+        boolean inCheck = position.isInCheck(position.isWhiteToMove());
+        
+        // If passing still fails high the real moves will too. Only tried at null-window nodes and
+        // not twice in a row, in check, near mate scores or with only pawns left, where zugzwang
+        // makes passing the best move.
+        if (nullMovePruning && allowNullMove && beta - alpha == 1 && depth >= NULL_MOVE_MIN_DEPTH && !inCheck
+                && Math.abs(beta) < ChessAI.MATE_BOUND
+                && position.hasNonPawnMaterial(position.isWhiteToMove())
+                && Evaluation.evaluate(position, pawnTable) >= beta) {
+            int reduction = NULL_MOVE_REDUCTION + (depth > 6 ? 1 : 0);
+            BitboardPosition.Undo nullUndo = undoStack[ply];
+            int floor = repetitionFloor;
+            repetitionFloor = rootIndex + ply + 1;
+            position.makeNullMove(nullUndo);
+            int eval = -alphaBeta(position, Math.max(0, depth - 1 - reduction), -beta, -beta + 1, ply + 1, false);
+            position.unmakeNullMove(nullUndo);
+            repetitionFloor = floor;
+            if (stopped) {
+                return 0;
+            }
+            if (eval >= beta) {
+                return eval >= ChessAI.MATE_BOUND ? beta : eval;
+            }
+        }
+        
+        int[] moves = moveStack[ply];
+        int count = position.generateLegalMoves(moves);
+        if (count == 0) {
+            return inCheck ? -ChessAI.MATE_SCORE + ply : 0;
+        }
+        
+        int bestEval = -ChessAI.INFINITY;
+        int bestMove = 0;
+        int originalAlpha = alpha;
+        
+        moveOrderer.scoreMoves(position, moves, count, hashMove, ply);
+        BitboardPosition.Undo undo = undoStack[ply];
+        
+        for (int i = 0; i < count; i++) {
+            int move = moveOrderer.nextMove(moves, count, i, ply);
+            position.makeMove(move, undo);
+            int eval;
+            if (i == 0) {
+                eval = -alphaBeta(position, depth - 1, -beta, -alpha, ply + 1, true);
+            } else {
+                // Later moves only have to be shown no better than alpha, which a null window does
+                // cheaply; late quiet moves are also searched shallower. Either is repeated in full
+                // when the move turns out better after all.
+                int reduction = 0;
+                if (lateMoveReductions && depth >= LMR_MIN_DEPTH && i >= LMR_MIN_MOVE && !inCheck
+                        && !BitboardPosition.isTactical(move) && !position.isInCheck(position.isWhiteToMove())) {
+                    reduction = i >= LMR_DEEP_MOVE && depth >= 6 ? 2 : 1;
+                }
+                eval = -alphaBeta(position, depth - 1 - reduction, -alpha - 1, -alpha, ply + 1, true);
+                if (eval > alpha && reduction > 0 && !stopped) {
+                    eval = -alphaBeta(position, depth - 1, -alpha - 1, -alpha, ply + 1, true);
+                }
+                if (eval > alpha && eval < beta && !stopped) {
+                    eval = -alphaBeta(position, depth - 1, -beta, -alpha, ply + 1, true);
+                }
+            }
+            position.unmakeMove(move, undo);
+            
+            if (stopped) {
+                return 0;
+            }
+            
+            if (eval > bestEval) {
+                bestEval = eval;
+                bestMove = move;
+            }
+            if (eval > alpha) {
+                alpha = eval;
+                updatePrincipalVariation(ply, move);
+            }
+            
+            if (beta <= alpha) {
+                betaCutoffs++;
+                if (i == 0) {
+                    firstMoveCutoffs++;
+                }
+                moveOrderer.recordCutoff(position, move, depth, ply);
+                break;
+            }
+        }
+        
+        int bound = bestEval >= beta ? TranspositionTable.LOWER_BOUND
+                  : bestEval > originalAlpha ? TranspositionTable.EXACT
+                  : TranspositionTable.UPPER_BOUND;
+        transpositionTable.store(key, bestMove, depth, bound, toTableScore(bestEval, ply));
+        
+        return bestEval;
+    }
+    
+    // Fifty moves without a capture or pawn move that do not end in mate, a position neither side
+    // can mate from, or one already reached since the last irreversible move, in the game or on
+    // this line. One earlier occurrence is enough: a side that can repeat once can do so again.
+    private boolean isDraw(BitboardPosition position, int ply) {
+        int clock = position.getHalfmoveClock();
+        if (clock >= 100) {
+            return !position.isInCheck(position.isWhiteToMove()) || position.generateLegalMoves(moveStack[ply]) > 0;
+        }
+        if (position.isInsufficientMaterial()) {
+            return true;
+        }
+        int index = rootIndex + ply;
+        long key = keyHistory[index];
+        // Both sides need at least two moves to get back to a position.
+        for (int i = index - 4; i >= Math.max(repetitionFloor, index - clock); i -= 2) {
+            if (keyHistory[i] == key) return true;
+        }
+        return false;
+    }
+    
+    private int bitbaseScore(BitboardPosition position, int result, int ply) {
+        if (result == Bitbases.WIN) return BITBASE_WIN - ply;
+        if (result == Bitbases.DRAW) return 0;
+        // Keep real mates so the winning side still delivers them.
+        if (position.generateLegalMoves(moveStack[ply]) == 0) return -ChessAI.MATE_SCORE + ply;
+        return -BITBASE_WIN + ply;
+    }
+    
+    private int quiescence(BitboardPosition position, int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        quiescenceNodes++;
+        if ((++nodes & 2047) == 0 && (stop.get() || System.nanoTime() >= deadline.get() || nodes >= nodeLimit)) {
+            stopped = true;
+        }
+        if (stopped) {
+            return 0;
+        }
+        
+        if (ply >= ChessAI.MAX_PLY - 1) {
+            return Evaluation.evaluate(position, pawnTable);
+        }
+        
+        int[] moves = moveStack[ply];
+        int count;
+        int standPat;
+        int bestEval;
+        // In check the side to move may not stand pat: every evasion is searched, and having
+        // none is mate.
+        boolean inCheck = position.isInCheck(position.isWhiteToMove());
+        if (inCheck) {
+            count = position.generateLegalMoves(moves);
+            if (count == 0) {
+                return -ChessAI.MATE_SCORE + ply;
+            }
+            standPat = -ChessAI.INFINITY;
+            bestEval = -ChessAI.INFINITY;
+        } else {
+            standPat = Evaluation.evaluate(position, pawnTable);
+            if (standPat >= beta) {
+                return standPat;
+            }
+            // Not even capturing a queen with a promoting pawn could bring the score back to alpha.
+            if (standPat + Evaluation.QUEEN_VALUE + Evaluation.QUEEN_VALUE < alpha) {
+                return standPat;
+            }
+            alpha = Math.max(alpha, standPat);
+            count = position.generateCaptures(moves);
+            bestEval = standPat;
+        }
+        
+        moveOrderer.scoreMoves(position, moves, count, 0, ply);
+        BitboardPosition.Undo undo = undoStack[ply];
+        
+        for (int i = 0; i < count; i++) {
+            int move = moveOrderer.nextMove(moves, count, i, ply);
+            
+            if (!inCheck && BitboardPosition.movePromotion(move) == 0) {
+                int victim = position.squares[BitboardPosition.moveTo(move)];
+                int gain = victim == BitboardPosition.EMPTY ? Evaluation.PAWN_VALUE : CAPTURE_VALUE[victim % 6];
+                if (standPat + gain + DELTA_MARGIN <= alpha) {
+                    continue;
+                }
+            }
+            
+            position.makeMove(move, undo);
+            int eval = -quiescence(position, -beta, -alpha, ply + 1);
+            position.unmakeMove(move, undo);
+            
+            if (stopped) {
+                return 0;
+            }
+            
+            if (eval > bestEval) {
+                bestEval = eval;
+            }
+            alpha = Math.max(alpha, eval);
+            
+            if (beta <= alpha) {
+                break;
+            }
+        }
+        
+        return bestEval;
+    }
+    
+    // Mate scores are stored relative to the node so they stay valid when reached at another ply.
+    private int toTableScore(int score, int ply) {
+        if (score > ChessAI.MATE_BOUND) return score + ply;
+        if (score < -ChessAI.MATE_BOUND) return score - ply;
+        return score;
+    }
+    
+    private int fromTableScore(int score, int ply) {
+        if (score > ChessAI.MATE_BOUND) return score - ply;
+        if (score < -ChessAI.MATE_BOUND) return score + ply;
+        return score;
+    }
+}
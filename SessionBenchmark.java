@@ -0,0 +1,65 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Usage: SessionBenchmark [sessions] [seconds] [depth] [searchThreads]
+// Measures the heap held by each idle game, then has every game's "human" reply at once with a
+// random legal move and reports the AI moves per second the search pool sustains. Finished games
+// are replaced so the number of open games stays constant. Clients are chained futures rather
+// than threads, so the numbers do not depend on whether the JDK has virtual threads.
+public class SessionBenchmark {
+    public static void main(String[] args) throws InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        SessionManager manager = new SessionManager(threads, 64);
+        long before = usedHeap();
+        List<GameSession> games = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            games.add(manager.create(false, true, null, SessionManager.DEFAULT_MOVE_TIME_MS, depth));
+        }
+        long after = usedHeap();
+        System.out.printf("%d idle games, %d bytes each%n", count, (after - before) / count);
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        long start = System.nanoTime();
+        for (GameSession game : games) {
+            playHuman(manager, game, depth, running);
+        }
+        for (int elapsed = 5; elapsed <= seconds; elapsed += 5) {
+            TimeUnit.SECONDS.sleep(5);
+            System.out.printf("%3d s: %d AI moves, %.1f AI moves/s, %d searches queued%n", elapsed,
+                              manager.getAIMoveCount(), manager.getAIMoveCount() / ((System.nanoTime() - start) / 1e9),
+                              manager.getQueuedSearches());
+        }
+        running.set(false);
+        manager.shutdown();
+    }
+
+    private static void playHuman(SessionManager manager, GameSession game, int depth, AtomicBoolean running) {
+        if (!running.get()) return;
+        if (game.getStatus() != GameSession.Status.ACTIVE) {
+            manager.close(game.getId());
+            game = manager.create(false, true, null, SessionManager.DEFAULT_MOVE_TIME_MS, depth);
+        }
+        BitboardPosition position = BitboardPosition.fromFen(game.getFen());
+        int[] moves = new int[BitboardPosition.MAX_MOVES];
+        int count = position.generateLegalMoves(moves);
+        GameSession current = game;
+        CompletableFuture<Integer> reply = manager.play(game.getId(), BitboardPosition.moveToString(moves[ThreadLocalRandom.current().nextInt(count)]));
+        reply.thenRun(() -> playHuman(manager, current, depth, running));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
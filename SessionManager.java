@@ -0,0 +1,125 @@
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Holds many independent games and runs their AI moves. Searches are CPU-bound, so they go to a
+// fixed pool of platform threads, one per core by default, each owning a single-threaded ChessAI.
+// All engines share one transposition table; it is lock-free and positions from different games
+// rarely collide. The pool's queue is FIFO and a game may have only one search queued or running,
+// so every game gets its turn no matter how many moves others request.
+public class SessionManager {
+    public static final long DEFAULT_MOVE_TIME_MS = 1000;
+    public static final int DEFAULT_MAX_DEPTH = 32;
+    private static final int DEFAULT_HASH_MB = 256;
+
+    private final ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLong aiMoves = new AtomicLong();
+    private final TranspositionTable transpositionTable;
+    private final ThreadPoolExecutor searchPool;
+    private final ThreadLocal<ChessAI> engines;
+
+    public SessionManager() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_HASH_MB);
+    }
+
+    public SessionManager(int searchThreads, int hashSizeMegabytes) {
+        transpositionTable = new TranspositionTable(hashSizeMegabytes);
+        searchPool = new ThreadPoolExecutor(searchThreads, searchThreads, 0, TimeUnit.MILLISECONDS,
+                                            new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "Session search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        OpeningBook openingBook = OpeningBook.openIfPresent(Paths.get("book.bin"));
+        Bitbases bitbases = Bitbases.openIfPresent(Paths.get("bitbases"));
+        engines = ThreadLocal.withInitial(() -> {
+            ChessAI ai = new ChessAI(transpositionTable);
+            ai.setOpeningBook(openingBook);
+            ai.setBitbases(bitbases);
+            return ai;
+        });
+    }
+
+    // Starts a game from the FEN, or the start position when it is null. If the AI moves first its
+    // search starts at once.
+    public GameSession create(boolean aiPlaysWhite, boolean aiPlaysBlack, String fen, long moveTimeMillis, int maxDepth) {
+        BitboardPosition position = BitboardPosition.fromFen(fen == null ? BitboardPosition.START_FEN : fen);
+        long id = nextId.getAndIncrement();
+        GameSession session = new GameSession(id, position, aiPlaysWhite, aiPlaysBlack, moveTimeMillis, maxDepth);
+        sessions.put(id, session);
+        requestAIMove(session);
+        return session;
+    }
+
+    public GameSession get(long id) {
+        GameSession session = sessions.get(id);
+        if (session == null) throw new IllegalArgumentException("No game " + id);
+        return session;
+    }
+
+    public boolean close(long id) {
+        return sessions.remove(id) != null;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public long getAIMoveCount() {
+        return aiMoves.get();
+    }
+
+    public int getQueuedSearches() {
+        return searchPool.getQueue().size();
+    }
+
+    // Plays the human's move and returns the AI's reply, which completes with 0 when the AI is
+    // not to move afterwards.
+    public CompletableFuture<Integer> play(long id, String move) {
+        GameSession session = get(id);
+        session.play(move);
+        return requestAIMove(session);
+    }
+
+    // The AI move being searched for the game, starting one if the AI is to move; completes with
+    // 0 when there is nothing to search.
+    public CompletableFuture<Integer> requestAIMove(GameSession session) {
+        CompletableFuture<Integer> search = new CompletableFuture<>();
+        BitboardPosition position = session.startSearch(search);
+        if (position == null) {
+            CompletableFuture<Integer> pending = session.getPendingSearch();
+            return pending != null ? pending : CompletableFuture.completedFuture(0);
+        }
+        searchPool.execute(() -> {
+            int move = 0;
+            try {
+                if (sessions.containsKey(session.getId())) {
+                    ChessAI ai = engines.get();
+                    ai.setMaxDepth(session.getMaxDepth());
+                    ai.setGameHistory(session.getRepetitionHistory());
+                    ChessAI.Move best = ai.getBestMove(position, session.getMoveTimeMillis());
+                    move = best == null ? 0 : position.findMove(best.encode());
+                }
+            } catch (RuntimeException e) {
+                session.finishSearch(0);
+                search.completeExceptionally(e);
+                return;
+            }
+            session.finishSearch(move);
+            if (move != 0) aiMoves.incrementAndGet();
+            search.complete(move);
+            // When the AI plays both sides the game carries on by itself, one queued search at a time.
+            if (move != 0 && session.isAiToMove()) requestAIMove(session);
+        });
+        return search;
+    }
+
+    public void shutdown() {
+        searchPool.shutdownNow();
+    }
+}
@@ -0,0 +1,59 @@
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER_BOUND = 2;
+    public static final int UPPER_BOUND = 3;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    public TranspositionTable(int sizeInMegabytes) {
+        int entries = Integer.highestOneBit(Math.max(1, sizeInMegabytes) * 1024 * 1024 / 16);
+        keys = new long[entries];
+        data = new long[entries];
+        mask = entries - 1;
+    }
+
+    // Returns the packed entry for this key, or 0 when there is none. Keys are stored XORed with
+    // their data so an entry torn by a concurrent write from another search thread never matches.
+    public long probe(long key) {
+        int index = (int) key & mask;
+        long entry = data[index];
+        return (keys[index] ^ entry) == key ? entry : 0;
+    }
+
+    public void store(long key, int move, int depth, int bound, int score) {
+        int index = (int) key & mask;
+        long existing = data[index];
+        if ((keys[index] ^ existing) == key && depth < depth(existing)) {
+            return;
+        }
+        long entry = (move & 0xFFFFFL)
+                | ((long) (depth & 0xFF) << 20)
+                | ((long) bound << 28)
+                | ((long) score << 32);
+        keys[index] = key ^ entry;
+        data[index] = entry;
+    }
+
+    public void clear() {
+        java.util.Arrays.fill(keys, 0);
+        java.util.Arrays.fill(data, 0);
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFFF);
+    }
+
+    public static int depth(long entry) {
+        return (int) ((entry >>> 20) & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) ((entry >>> 28) & 3);
+    }
+
+    public static int score(long entry) {
+        return (int) (entry >> 32);
+    }
+}
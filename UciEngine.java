@@ -0,0 +1,289 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Headless front end speaking the UCI protocol on stdin/stdout. Nothing here touches Swing or AWT,
+// so the engine starts quickly and runs in containers without a display.
+public class UciEngine {
+    private static final String NAME = "Java Chess";
+    private static final int DEFAULT_HASH_MB = 16;
+    private static final int MAX_HASH_MB = 4096;
+    private static final int MAX_THREADS = 256;
+    private static final long NO_TIME_LIMIT_MS = 24L * 60 * 60 * 1000;
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    private static final long MOVE_OVERHEAD_MS = 20;
+
+    private final ExecutorService searchThread;
+    private Future<?> search;
+    // Under "go infinite" the best move may only be sent after "stop", even if the search ends first.
+    private volatile CountDownLatch stopSignal = new CountDownLatch(0);
+
+    private BitboardPosition position = BitboardPosition.fromFen(BitboardPosition.START_FEN);
+    // Keys of the positions the moves of the last "position" command passed through, for repetitions.
+    private long[] history = new long[0];
+    private int hashSizeMegabytes = DEFAULT_HASH_MB;
+    private int threads = 1;
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private OpeningBook openingBook;
+    private Bitbases bitbases;
+    private ChessAI ai;
+
+    public UciEngine() {
+        this(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UCI search");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    // Searches run one at a time on the given executor, which must be single-threaded.
+    UciEngine(ExecutorService searchThread) {
+        this.searchThread = searchThread;
+    }
+
+    public static void main(String[] args) throws IOException {
+        new UciEngine().run(new BufferedReader(new InputStreamReader(System.in)));
+    }
+
+    public void run(BufferedReader in) throws IOException {
+        ai = createAI();
+        String line;
+        while ((line = in.readLine()) != null) {
+            String[] tokens = line.trim().split("\\s+");
+            switch (tokens[0]) {
+                case "uci":
+                    send("id name " + NAME);
+                    send("id author Java Chess authors");
+                    send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                    send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                    send("option name BookFile type string default <empty>");
+                    send("option name BitbasePath type string default <empty>");
+                    send("option name NullMove type check default true");
+                    send("option name LateMoveReductions type check default true");
+                    send("uciok");
+                    break;
+                case "isready":
+                    send("readyok");
+                    break;
+                case "setoption":
+                    waitForSearch();
+                    setOption(line);
+                    break;
+                case "ucinewgame":
+                    waitForSearch();
+                    ai = createAI();
+                    break;
+                case "position":
+                    waitForSearch();
+                    setPosition(tokens);
+                    break;
+                case "go":
+                    waitForSearch();
+                    try {
+                        go(tokens);
+                    } catch (NumberFormatException e) {
+                        send("info string invalid go command: " + line);
+                    }
+                    break;
+                case "stop":
+                    ai.stop();
+                    stopSignal.countDown();
+                    waitForSearch();
+                    break;
+                case "quit":
+                    ai.stop();
+                    stopSignal.countDown();
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private ChessAI createAI() {
+        ChessAI created = new ChessAI(new TranspositionTable(hashSizeMegabytes));
+        created.setThreadCount(threads);
+        created.setOpeningBook(openingBook);
+        created.setBitbases(bitbases);
+        created.setNullMovePruning(nullMovePruning);
+        created.setLateMoveReductions(lateMoveReductions);
+        return created;
+    }
+
+    private void setOption(String line) {
+        int nameStart = line.indexOf("name ");
+        if (nameStart < 0) return;
+        int valueStart = line.indexOf(" value ");
+        String name = (valueStart < 0 ? line.substring(nameStart + 5) : line.substring(nameStart + 5, valueStart)).trim();
+        String value = valueStart < 0 ? "" : line.substring(valueStart + 7).trim();
+        try {
+            switch (name) {
+                case "Hash":
+                    hashSizeMegabytes = Math.max(1, Math.min(Integer.parseInt(value), MAX_HASH_MB));
+                    ai = createAI();
+                    break;
+                case "Threads":
+                    threads = Math.max(1, Math.min(Integer.parseInt(value), MAX_THREADS));
+                    ai.setThreadCount(threads);
+                    break;
+                case "BookFile":
+                    openingBook = value.isEmpty() || value.equals("<empty>") ? null : OpeningBook.openIfPresent(Paths.get(value));
+                    ai.setOpeningBook(openingBook);
+                    break;
+                case "BitbasePath":
+                    bitbases = value.isEmpty() || value.equals("<empty>") ? null : Bitbases.openIfPresent(Paths.get(value));
+                    ai.setBitbases(bitbases);
+                    break;
+                case "NullMove":
+                    nullMovePruning = Boolean.parseBoolean(value);
+                    ai.setNullMovePruning(nullMovePruning);
+                    break;
+                case "LateMoveReductions":
+                    lateMoveReductions = Boolean.parseBoolean(value);
+                    ai.setLateMoveReductions(lateMoveReductions);
+                    break;
+                default:
+                    send("info string unknown option " + name);
+            }
+        } catch (NumberFormatException e) {
+            send("info string invalid value for " + name + ": " + value);
+        }
+    }
+
+    // position [startpos | fen <fen>] [moves <move> ...]
+    private void setPosition(String[] tokens) {
+        int index = 1;
+        BitboardPosition next;
+        if (tokens.length > 1 && tokens[1].equals("startpos")) {
+            next = BitboardPosition.fromFen(BitboardPosition.START_FEN);
+            index = 2;
+        } else if (tokens.length > 1 && tokens[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder();
+            for (index = 2; index < tokens.length && !tokens[index].equals("moves"); index++) {
+                fen.append(tokens[index]).append(' ');
+            }
+            try {
+                next = BitboardPosition.fromFen(fen.toString());
+            } catch (IllegalArgumentException e) {
+                send("info string " + e.getMessage());
+                return;
+            }
+        } else {
+            return;
+        }
+
+        long[] keys = new long[tokens.length];
+        int played = 0;
+        if (index < tokens.length && tokens[index].equals("moves")) {
+            for (index++; index < tokens.length; index++) {
+                int move = next.parseMove(tokens[index]);
+                if (move == 0) {
+                    send("info string illegal move " + tokens[index]);
+                    break;
+                }
+                keys[played++] = next.getKey();
+                next.makeMove(move);
+            }
+        }
+        position = next;
+        history = Arrays.copyOf(keys, played);
+    }
+
+    // go [depth N] [movetime MS] [nodes N] [wtime MS btime MS winc MS binc MS movestogo N] [infinite]
+    private void go(String[] tokens) {
+        int depth = Integer.MAX_VALUE;
+        long nodes = Long.MAX_VALUE;
+        long moveTime = -1;
+        long time = -1;
+        long increment = 0;
+        int movesToGo = DEFAULT_MOVES_TO_GO;
+        boolean infinite = false;
+        boolean white = position.isWhiteToMove();
+
+        for (int i = 1; i < tokens.length; i++) {
+            String value = i + 1 < tokens.length ? tokens[i + 1] : "0";
+            switch (tokens[i]) {
+                case "depth": depth = Integer.parseInt(value); i++; break;
+                case "nodes": nodes = Long.parseLong(value); i++; break;
+                case "movetime": moveTime = Long.parseLong(value); i++; break;
+                case "wtime": if (white) time = Long.parseLong(value); i++; break;
+                case "btime": if (!white) time = Long.parseLong(value); i++; break;
+                case "winc": if (white) increment = Long.parseLong(value); i++; break;
+                case "binc": if (!white) increment = Long.parseLong(value); i++; break;
+                case "movestogo": movesToGo = Math.max(1, Integer.parseInt(value)); i++; break;
+                case "infinite": infinite = true; break;
+                default: break;
+            }
+        }
+
+        long budget = NO_TIME_LIMIT_MS;
+        if (moveTime >= 0) {
+            budget = moveTime;
+        } else if (time >= 0) {
+            budget = Math.min(time / movesToGo + increment * 3 / 4, time - MOVE_OVERHEAD_MS);
+        }
+        long timeBudget = Math.max(1, budget - (moveTime >= 0 ? MOVE_OVERHEAD_MS : 0));
+
+        ChessAI searcher = ai;
+        BitboardPosition root = new BitboardPosition(position);
+        searcher.setMaxDepth(depth);
+        searcher.setNodeLimit(nodes);
+        searcher.setGameHistory(history);
+        long start = System.nanoTime();
+        searcher.setSearchListener((completedDepth, score, principalVariation) -> {
+            long elapsed = Math.max(1, (System.nanoTime() - start) / 1000000);
+            long searched = searcher.getNodeCount();
+            StringBuilder pv = new StringBuilder();
+            for (int move : principalVariation) {
+                pv.append(' ').append(BitboardPosition.moveToString(move));
+            }
+            send("info depth " + completedDepth + " score " + formatScore(score) + " nodes " + searched
+                 + " nps " + searched * 1000 / elapsed + " time " + elapsed + " pv" + pv);
+        });
+        CountDownLatch signal = new CountDownLatch(infinite ? 1 : 0);
+        stopSignal = signal;
+        // Started from this thread so that a "stop" read right after "go" finds the search armed.
+        CompletableFuture<ChessAI.Move> result = searcher.startSearch(root, timeBudget, searchThread);
+        search = searchThread.submit(() -> {
+            ChessAI.Move best = result.join();
+            signal.await();
+            int move = best == null ? 0 : root.findMove(best.encode());
+            send("bestmove " + (move == 0 ? "0000" : BitboardPosition.moveToString(move)));
+            return null;
+        });
+    }
+
+    private static String formatScore(int score) {
+        if (Math.abs(score) > ChessAI.MATE_BOUND) {
+            int plies = ChessAI.MATE_SCORE - Math.abs(score);
+            return "mate " + (score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+        }
+        return "cp " + score;
+    }
+
+    private void waitForSearch() {
+        if (search == null) return;
+        try {
+            search.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            send("info string search failed: " + e.getCause());
+        }
+        search = null;
+    }
+
+    private static synchronized void send(String message) {
+        System.out.println(message);
+        System.out.flush();
+    }
+}
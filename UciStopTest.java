@@ -0,0 +1,57 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Fails (exit status 1) if a "stop" sent straight after "go infinite" is lost: the engine must
+// answer with a bestmove and then read "quit", well before the time limit below. The search
+// thread is kept busy for a moment first, so "stop" is always read before the search starts.
+//
+// Usage: java UciStopTest
+public class UciStopTest {
+    private static final long TIME_LIMIT_MS = 10000;
+    private static final long SEARCH_START_DELAY_MS = 500;
+
+    public static void main(String[] args) throws InterruptedException {
+        String commands = "uci\nisready\nposition startpos moves e2e4\ngo infinite\nstop\nquit\n";
+        ExecutorService searchThread = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "UCI search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        searchThread.execute(() -> {
+            try {
+                Thread.sleep(SEARCH_START_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(output, true));
+        Thread engine = new Thread(() -> {
+            try {
+                new UciEngine(searchThread).run(new BufferedReader(new StringReader(commands)));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, "UCI engine");
+        engine.setDaemon(true);
+        engine.start();
+        engine.join(TIME_LIMIT_MS);
+        System.setOut(console);
+
+        boolean finished = !engine.isAlive();
+        boolean answered = output.toString().contains("bestmove ");
+        if (!finished || !answered) {
+            System.out.println("FAILED: " + (answered ? "" : "no bestmove after stop; ")
+                               + (finished ? "" : "engine still running after " + TIME_LIMIT_MS + " ms"));
+            System.exit(1);
+        }
+        System.out.println("PASSED");
+    }
+}
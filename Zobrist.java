@@ -0,0 +1,37 @@
+public class Zobrist {
+    static final long[][] PIECES = new long[12][64];
+    static final long[] CASTLING = new long[16];
+    static final long[] EN_PASSANT = new long[8];
+    static final long SIDE;
+
+    // Fixed seed so keys, and anything stored against them, are identical between runs.
+    static {
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int piece = 0; piece < 12; piece++) {
+            for (int sq = 0; sq < 64; sq++) {
+                seed = next(seed);
+                PIECES[piece][sq] = mix(seed);
+            }
+        }
+        for (int i = 0; i < 16; i++) {
+            seed = next(seed);
+            CASTLING[i] = mix(seed);
+        }
+        for (int i = 0; i < 8; i++) {
+            seed = next(seed);
+            EN_PASSANT[i] = mix(seed);
+        }
+        seed = next(seed);
+        SIDE = mix(seed);
+    }
+
+    private static long next(long seed) {
+        return seed + 0x9E3779B97F4A7C15L;
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}